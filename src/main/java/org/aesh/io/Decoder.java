@@ -24,30 +24,52 @@ import org.aesh.util.Parser;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.IntBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Had to revert back to reading char by char.
- * Code is taken from Julien Viet's BinaryDecoder in termd.
+ * Decode bytes to code points.
+ * UTF-8 is decoded directly from the bytes, other charsets use a {@link CharsetDecoder}.
+ * The buffers are reused between writes and incomplete byte sequences and surrogate
+ * pairs split between writes are kept until the next write.
+ * Malformed input is replaced with U+FFFD.
+ *
+ * Based on Julien Viet's BinaryDecoder in termd.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class Decoder {
 
-    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
     private static final Logger LOGGER = LoggerUtil.getLogger(Decoder.class);
+    private static final int REPLACEMENT = 0xFFFD;
+
+    //max number of code points given to the consumer at once
+    private final int chunkSize;
+    private Consumer<int[]> onChar;
+    private boolean utf8;
+
+    //decoded code points, reused between writes
+    private int[] codePoints;
+    private int count;
+
+    //utf-8 state, kept between writes for sequences that are split
+    private int utf8CodePoint;
+    private int utf8Remaining;
+    private int utf8Lower = 0x80;
+    private int utf8Upper = 0xBF;
 
+    //used for other charsets than utf-8
     private CharsetDecoder decoder;
     private ByteBuffer bBuf;
     private final CharBuffer cBuf;
-    private Consumer<int[]> onChar;
+    private char highSurrogate;
 
     private int[] leftOverCodePoints;
 
@@ -59,14 +81,24 @@ public class Decoder {
         if (initialSize < 2) {
             throw new IllegalArgumentException("Initial size must be at least 2");
         }
-        decoder = charset.newDecoder();
-        bBuf = EMPTY;
+        chunkSize = initialSize;
+        codePoints = new int[initialSize];
+        bBuf = ByteBuffer.allocate(initialSize);
         cBuf = CharBuffer.allocate(initialSize); // We need at least 2
         this.onChar = onChar;
+        setCharset(charset);
     }
 
     public void setCharset(Charset charset) {
-        decoder = charset.newDecoder();
+        utf8 = StandardCharsets.UTF_8.equals(charset);
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bBuf.clear();
+        highSurrogate = 0;
+        utf8Remaining = 0;
+        utf8Lower = 0x80;
+        utf8Upper = 0xBF;
     }
 
     public void write(byte[] data) {
@@ -78,17 +110,90 @@ public class Decoder {
         //if we have some leftovers, we use them first
         if(leftOverCodePoints != null && leftOverCodePoints.length > 0 &&
                 onChar != null) {
-            onChar.accept(leftOverCodePoints);
+            int[] leftOver = leftOverCodePoints;
             leftOverCodePoints = null;
+            onChar.accept(leftOver);
         }
 
+        count = 0;
+        if (utf8)
+            decodeUtf8(data, start, len);
+        else
+            decodeCharset(data, start, len);
+
+        for (int i = 0; i < count; i += chunkSize) {
+            int[] chunk = Arrays.copyOfRange(codePoints, i, Math.min(count, i + chunkSize));
+            if (onChar != null)
+                onChar.accept(chunk);
+            else {
+                LOGGER.log(Level.WARNING, "InputHandler is set to null, will ignore input: " + Parser.fromCodePoints(chunk));
+                if (leftOverCodePoints == null)
+                    leftOverCodePoints = chunk;
+                else {
+                    int length = leftOverCodePoints.length;
+                    leftOverCodePoints = Arrays.copyOf(leftOverCodePoints, length + chunk.length);
+                    System.arraycopy(chunk, 0, leftOverCodePoints, length, chunk.length);
+                }
+            }
+        }
+    }
+
+    private void decodeUtf8(byte[] data, int start, int len) {
+        for (int i = start; i < start + len; i++) {
+            int b = data[i] & 0xFF;
+            if (utf8Remaining == 0) {
+                if (b < 0x80) {
+                    add(b);
+                }
+                else if (b >= 0xC2 && b <= 0xDF) {
+                    utf8CodePoint = b & 0x1F;
+                    utf8Remaining = 1;
+                }
+                else if (b >= 0xE0 && b <= 0xEF) {
+                    //no overlong encodings or surrogates
+                    if (b == 0xE0)
+                        utf8Lower = 0xA0;
+                    else if (b == 0xED)
+                        utf8Upper = 0x9F;
+                    utf8CodePoint = b & 0x0F;
+                    utf8Remaining = 2;
+                }
+                else if (b >= 0xF0 && b <= 0xF4) {
+                    //no overlong encodings or code points above U+10FFFF
+                    if (b == 0xF0)
+                        utf8Lower = 0x90;
+                    else if (b == 0xF4)
+                        utf8Upper = 0x8F;
+                    utf8CodePoint = b & 0x07;
+                    utf8Remaining = 3;
+                }
+                else {
+                    add(REPLACEMENT);
+                }
+            }
+            else if (b < utf8Lower || b > utf8Upper) {
+                //incomplete sequence, the byte is decoded again as the start of a new sequence
+                utf8Remaining = 0;
+                utf8Lower = 0x80;
+                utf8Upper = 0xBF;
+                add(REPLACEMENT);
+                i--;
+            }
+            else {
+                utf8Lower = 0x80;
+                utf8Upper = 0xBF;
+                utf8CodePoint = (utf8CodePoint << 6) | (b & 0x3F);
+                if (--utf8Remaining == 0)
+                    add(utf8CodePoint);
+            }
+        }
+    }
+
+    private void decodeCharset(byte[] data, int start, int len) {
         // Fill the byte buffer
-        int remaining = bBuf.remaining();
-        if (len > remaining) {
-            // Allocate a new buffer
+        if (len > bBuf.remaining()) {
             ByteBuffer tmp = bBuf;
-            int length = tmp.position() + len;
-            bBuf = ByteBuffer.allocate(length);
+            bBuf = ByteBuffer.allocate(tmp.position() + len);
             tmp.flip();
             bBuf.put(tmp);
         }
@@ -97,62 +202,44 @@ public class Decoder {
 
         // Drain the byte buffer
         while (true) {
-            IntBuffer iBuf = IntBuffer.allocate(bBuf.remaining());
             CoderResult result = decoder.decode(bBuf, cBuf, false);
             cBuf.flip();
-            while (cBuf.hasRemaining()) {
-                char c = cBuf.get();
-                if (Character.isSurrogate(c)) {
-                    if (Character.isHighSurrogate(c)) {
-                        if (cBuf.hasRemaining()) {
-                            char low = cBuf.get();
-                            if (Character.isLowSurrogate(low)) {
-                                int codePoint = Character.toCodePoint(c, low);
-                                if (Character.isValidCodePoint(codePoint)) {
-                                    iBuf.put(codePoint);
-                                } else {
-                                    throw new UnsupportedOperationException("Handle me gracefully");
-                                }
-                            } else {
-                                throw new UnsupportedOperationException("Handle me gracefully");
-                            }
-                        } else {
-                            throw new UnsupportedOperationException("Handle me gracefully");
-                        }
-                    } else {
-                        throw new UnsupportedOperationException("Handle me gracefully");
-                    }
-                } else {
-                    iBuf.put((int) c);
-                }
-            }
-            iBuf.flip();
-            int[] codePoints = new int[iBuf.limit()];
-            iBuf.get(codePoints);
-            if(onChar != null)
-                onChar.accept(codePoints);
-            else {
-                LOGGER.log(Level.WARNING, "InputHandler is set to null, will ignore input: " + Parser.fromCodePoints(codePoints));
-                leftOverCodePoints = Arrays.copyOf(codePoints, codePoints.length);
-            }
-            cBuf.compact();
-            if (result.isOverflow()) {
-                // We still have work to do
-            } else if (result.isUnderflow()) {
-                //TODO: need to add logic here
-                if (bBuf.hasRemaining()) {
-                    // We need more input
-                } else {
-                    // We are done
-                }
+            while (cBuf.hasRemaining())
+                addChar(cBuf.get());
+            cBuf.clear();
+            //if the char buffer is full we still have work to do,
+            //else the remaining bytes (if any) are waiting for more input
+            if (!result.isOverflow())
                 break;
-            } else {
-                throw new UnsupportedOperationException("Handle me gracefully");
-            }
         }
         bBuf.compact();
     }
 
+    private void addChar(char c) {
+        //the high surrogate might be the last char of the previous write
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                add(Character.toCodePoint(high, c));
+                return;
+            }
+            add(REPLACEMENT);
+        }
+        if (Character.isHighSurrogate(c))
+            highSurrogate = c;
+        else if (Character.isLowSurrogate(c))
+            add(REPLACEMENT);
+        else
+            add(c);
+    }
+
+    private void add(int codePoint) {
+        if (count == codePoints.length)
+            codePoints = Arrays.copyOf(codePoints, count * 2);
+        codePoints[count++] = codePoint;
+    }
+
     public void setConsumer(Consumer<int[]> inputHandler) {
         onChar = inputHandler;
     }
@@ -21,45 +21,106 @@ package org.aesh.io;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
+ * Encode code points to bytes with the given charset.
+ * The charset encoder and buffers are reused between calls, and input that
+ * only contain ascii is written directly if the charset is ascii compatible.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class Encoder implements Consumer<int[]> {
 
     private final Charset charset;
     private final Consumer<byte[]> out;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private CharBuffer charBuf = CharBuffer.allocate(64);
+    private ByteBuffer byteBuf = ByteBuffer.allocate(128);
 
     public Encoder(Charset charset, Consumer<byte[]> out) {
         this.charset = charset;
         this.out = out;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiCompatible = isAsciiCompatible(charset);
     }
 
     @Override
-    public void accept(int[] input) {
-        final char[] tmp = new char[2];
+    public synchronized void accept(int[] input) {
+        if (asciiCompatible) {
+            byte[] bytes = new byte[input.length];
+            int i = 0;
+            while (i < input.length && input[i] < 0x80 && input[i] >= 0) {
+                bytes[i] = (byte) input[i];
+                i++;
+            }
+            if (i == input.length) {
+                out.accept(bytes);
+                return;
+            }
+        }
+        out.accept(encode(input));
+    }
+
+    private byte[] encode(int[] input) {
         int capacity = 0;
         for (int codePoint : input) {
             capacity += Character.charCount(codePoint);
         }
-        CharBuffer charBuf = CharBuffer.allocate(capacity);
-        for (int in : input) {
-            int size = Character.toChars(in, tmp, 0);
-            charBuf.put(tmp, 0, size);
+        if (charBuf.capacity() < capacity)
+            charBuf = CharBuffer.allocate(capacity);
+        char[] chars = charBuf.array();
+        int length = 0;
+        for (int codePoint : input) {
+            length += Character.toChars(codePoint, chars, length);
         }
-        charBuf.flip();
-        ByteBuffer bytesBuf = charset.encode(charBuf);
+        charBuf.clear();
+        charBuf.limit(length);
 
-        out.accept(safeTrim(bytesBuf.array(), bytesBuf.limit()));
+        int maxBytes = (int) (capacity * encoder.maxBytesPerChar());
+        if (byteBuf.capacity() < maxBytes)
+            byteBuf = ByteBuffer.allocate(maxBytes);
+        byteBuf.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(charBuf, byteBuf, true);
+        if (result.isUnderflow())
+            result = encoder.flush(byteBuf);
+        if (!result.isUnderflow()) {
+            //should not happen since we allocate for the max bytes per char,
+            //fall back to the charset
+            charBuf.rewind();
+            ByteBuffer bytes = charset.encode(charBuf);
+            return Arrays.copyOf(bytes.array(), bytes.limit());
+        }
+        return Arrays.copyOf(byteBuf.array(), byteBuf.position());
     }
 
-    private static byte[] safeTrim(byte[] bytes, int length) {
-        if(bytes.length == length)
-            return bytes;
-        else
-            return Arrays.copyOf(bytes, length);
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (!charset.canEncode())
+            return false;
+        char[] ascii = new char[128];
+        for (int i = 0; i < ascii.length; i++)
+            ascii[i] = (char) i;
+        try {
+            ByteBuffer bytes = charset.newEncoder().encode(CharBuffer.wrap(ascii));
+            if (bytes.remaining() != ascii.length)
+                return false;
+            for (int i = 0; i < ascii.length; i++)
+                if (bytes.get(i) != i)
+                    return false;
+            return true;
+        }
+        catch (CharacterCodingException e) {
+            return false;
+        }
     }
 }
@@ -10,6 +10,7 @@ import org.aesh.util.Config;
 import org.aesh.readline.completion.CompletionHandler;
 import org.aesh.readline.editing.EditMode;
 import org.aesh.readline.history.History;
+import org.aesh.tty.Capability;
 import org.aesh.tty.Connection;
 import org.aesh.util.LoggerUtil;
 
@@ -43,6 +44,8 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
         this.connection = connection;
         this.ansiMode = ansi;
         this.buffer = new Buffer(prompt);
+        buffer.setInsertDeleteCharacters(connection.getStringCapability(Capability.parm_ich) != null &&
+                connection.getStringCapability(Capability.parm_dch) != null);
         pasteManager = new PasteManager();
         undoManager = new UndoManager();
         if(history == null) {
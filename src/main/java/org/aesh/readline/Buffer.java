@@ -21,6 +21,7 @@ package org.aesh.readline;
 
 import org.aesh.util.Config;
 import org.aesh.util.IntArrayBuilder;
+import org.aesh.util.IntGapBuffer;
 import org.aesh.util.ANSI;
 import org.aesh.util.LoggerUtil;
 import org.aesh.util.Parser;
@@ -39,10 +40,12 @@ import java.util.logging.Logger;
 public class Buffer {
 
     private static final Logger LOGGER = LoggerUtil.getLogger(Buffer.class.getName());
+    //ICH and DCH, insert and delete characters at the cursor
+    private static final char INSERT_CHARACTERS = '@';
+    private static final char DELETE_CHARACTERS = 'P';
 
-    private int[] line;
+    private final IntGapBuffer line;
     private int cursor;
-    private int size;
     private Prompt prompt;
     private int delta; //need to keep track of a delta for ansi terminal
     //if delta happens at the end of the buffer, we can optimize
@@ -53,15 +56,17 @@ public class Buffer {
     private int[] multiLineBuffer = new int[0];
     private boolean isPromptDisplayed = false;
     private boolean deletingBackward = true;
+    //the terminal supports ICH and DCH
+    private boolean insertDeleteCharacters = true;
 
 
     Buffer() {
-        line = new int[1024];
+        line = new IntGapBuffer(1024);
         prompt = new Prompt("");
     }
 
     Buffer(Prompt prompt) {
-        line = new int[1024];
+        line = new IntGapBuffer(1024);
         if(prompt != null)
             this.prompt = prompt;
         else
@@ -69,15 +74,17 @@ public class Buffer {
     }
 
     public Buffer(Buffer buf) {
-        line = buf.line.clone();
+        line = new IntGapBuffer(buf.line);
         cursor = buf.cursor;
-        size = buf.size;
         prompt = buf.prompt.copy();
     }
 
     public int get(int pos) {
-        if(pos > -1 && pos <= size)
-            return line[pos];
+        if(pos > -1 && pos < size())
+            return line.get(pos);
+        //the position after the last character is empty
+        else if(pos == size())
+            return 0;
         else
             throw new IndexOutOfBoundsException();
     }
@@ -107,14 +114,21 @@ public class Buffer {
 
     public void reset() {
         cursor = 0;
-        for(int i=0; i<size; i++)
-            line[i] = 0;
-        size = 0;
+        line.clear();
         isPromptDisplayed = false;
         if(multiLine)
             multiLineBuffer = new int[0];
     }
 
+    /**
+     * @param insertDeleteCharacters the terminal supports inserting and deleting
+     *                               characters at the cursor, if not the rest of
+     *                               the line is printed again when it changes
+     */
+    public void setInsertDeleteCharacters(boolean insertDeleteCharacters) {
+        this.insertDeleteCharacters = insertDeleteCharacters;
+    }
+
     public void setIsPromptDisplayed(boolean isPromptDisplayed) {
         this.isPromptDisplayed = isPromptDisplayed;
     }
@@ -148,7 +162,11 @@ public class Buffer {
         if(isMasking() && prompt.getMask() == 0)
             return 1;
         else
-            return size;
+            return size();
+    }
+
+    private int size() {
+        return line.size();
     }
 
     private int promptLength() {
@@ -162,22 +180,16 @@ public class Buffer {
 
     public void updateMultiLineBuffer() {
         int originalSize = multiLineBuffer.length;
-        if(lineEndsWithBackslash()) {
-            multiLineBuffer = Arrays.copyOf(multiLineBuffer, originalSize + size-1);
-            System.arraycopy(line, 0, multiLineBuffer, originalSize, size-1);
-        }
-        else {
-            multiLineBuffer = Arrays.copyOf(multiLineBuffer, originalSize + size);
-            System.arraycopy(line, 0, multiLineBuffer, originalSize, size);
-        }
+        int length = lineEndsWithBackslash() ? size()-1 : size();
+        multiLineBuffer = Arrays.copyOf(multiLineBuffer, originalSize + length);
+        line.copyTo(0, length, multiLineBuffer, originalSize);
         clear();
         prompt = new Prompt("> ");
         cursor = 0;
-        size = 0;
     }
 
     private boolean lineEndsWithBackslash() {
-        return (size > 0 && line[size-1] == '\\');
+        return (size() > 0 && line.get(size()-1) == '\\');
     }
 
     /**
@@ -206,13 +218,10 @@ public class Buffer {
             //todo: handle control chars...
         }
         else if(width == 1) {
-            if(cursor < size)
-                System.arraycopy(line, cursor, line, cursor + 1, size - cursor);
-            line[cursor++] = data;
-            size++;
+            line.insert(cursor++, data);
             delta++;
 
-            deltaChangedAtEndOfBuffer = (size == cursor);
+            deltaChangedAtEndOfBuffer = (size() == cursor);
         }
     }
 
@@ -231,14 +240,11 @@ public class Buffer {
     }
 
     private void doActualInsert(int[] data) {
-        if(cursor < size)
-            System.arraycopy(line, cursor, line, cursor + data.length, size - cursor);
-        for (int aData : data)
-            line[cursor++] = aData;
-        size += data.length;
+        line.insert(cursor, data);
+        cursor += data.length;
         delta += data.length;
 
-        deltaChangedAtEndOfBuffer = (size == cursor);
+        deltaChangedAtEndOfBuffer = (size() == cursor);
     }
 
     /**
@@ -275,7 +281,9 @@ public class Buffer {
             return;
         }
 
-        out.accept( syncCursor(promptLength()+cursor, promptLength()+cursor+move, termWidth));
+        IntArrayBuilder builder = new IntArrayBuilder();
+        moveCursor(builder, promptLength()+cursor, promptLength()+cursor+move, termWidth);
+        out.accept(builder.toArray());
 
         cursor = cursor + move;
 
@@ -286,23 +294,7 @@ public class Buffer {
         IntArrayBuilder builder = new IntArrayBuilder();
         if(newPos < 1)
             newPos = 1;
-        if(currentPos / width == newPos / width) {
-            if(currentPos > newPos)
-                builder.append(moveNumberOfColumns(currentPos-newPos, 'D'));
-            else
-                builder.append(moveNumberOfColumns(newPos-currentPos, 'C'));
-        }
-        //if cursor and end of buffer is on different lines, we need to move the cursor
-        else {
-            int moveToLine = currentPos / width - newPos / width;
-            int moveToColumn = currentPos % width - newPos % width;
-            char rowDirection = 'A';
-            if(moveToLine < 0) {
-                rowDirection = 'B';
-                moveToLine = Math.abs(moveToLine);
-            }
-            builder.append(  moveNumberOfColumnsAndRows(  moveToLine, rowDirection, moveToColumn));
-        }
+        moveCursor(builder, currentPos, newPos, width);
         return builder.toArray();
     }
 
@@ -337,7 +329,8 @@ public class Buffer {
          }
          //now the cursor should be on the correct line and at position 0
         // we then need to move it to newPos
-        builder.append(moveNumberOfColumns(newPos % width, 'C'));
+        if(newPos % width > 0)
+            builder.append(moveNumberOfColumns(newPos % width, 'C'));
         return builder.toArray();
     }
 
@@ -439,15 +432,15 @@ public class Buffer {
     }
 
     private int[] getLineFrom(int position) {
-        return Arrays.copyOfRange(line, position, size);
+        return line.toArray(position, size());
     }
 
     public int[] getLineMasked() {
         if(!isMasking())
-            return Arrays.copyOf(line, size);
+            return line.toArray();
         else {
-            if(size > 0 && prompt.getMask() != '\u0000') {
-                int[] tmpLine = new int[size];
+            if(size() > 0 && prompt.getMask() != '\u0000') {
+                int[] tmpLine = new int[size()];
                 Arrays.fill(tmpLine, prompt.getMask());
                 return tmpLine;
             }
@@ -457,13 +450,12 @@ public class Buffer {
     }
 
     private int[] getLine() {
-        return Arrays.copyOf(line, size);
+        return line.toArray();
     }
 
     public void clear() {
-        Arrays.fill(this.line, 0, size, 0);
+        line.clear();
         cursor = 0;
-        size = 0;
         isPromptDisplayed = false;
     }
 
@@ -497,6 +489,17 @@ public class Buffer {
     }
 
     private void printInsertedData(Consumer<int[]> out, int width) {
+        //if the rest of the line is on the same row, we only insert the new data
+        if(canPrintChanges() && insertDeleteCharacters && !deltaChangedAtEndOfBuffer && delta > 0 &&
+                (promptLength() + size()) / width == (promptLength() + cursor - delta) / width) {
+            IntArrayBuilder builder = new IntArrayBuilder();
+            builder.append(moveNumberOfColumns(delta, INSERT_CHARACTERS));
+            builder.append(line.toArray(cursor - delta, cursor));
+            out.accept(builder.toArray());
+            delta = 0;
+            deltaChangedAtEndOfBuffer = true;
+            return;
+        }
         //print out prompt first if needed
         IntArrayBuilder builder = new IntArrayBuilder();
         if(!isPromptDisplayed && promptLength() > 0) {
@@ -508,8 +511,9 @@ public class Buffer {
                 delta = cursor;
         }
         //quick exit if buffer is empty
-        if(size == 0) {
+        if(size() == 0) {
             out.accept(builder.toArray());
+            isPromptDisplayed = true;
             return;
         }
 
@@ -523,43 +527,44 @@ public class Buffer {
         else {
             if (deltaChangedAtEndOfBuffer) {
                 if (delta == 1 || delta == 0)
-                    builder.append(new int[]{line[cursor - 1]});
+                    builder.append(new int[]{line.get(cursor - 1)});
                 else
-                    builder.append(Arrays.copyOfRange(line, cursor - delta, cursor));
+                    builder.append(line.toArray(cursor - delta, cursor));
             } else {
-                builder.append(Arrays.copyOfRange(line, cursor - delta, size));
+                builder.append(line.toArray(cursor - delta, size()));
             }
         }
 
         //pad if we are at the end of the terminal
-        if((size + promptLength()) % width == 0 && deltaChangedAtEndOfBuffer) {
+        if((size() + promptLength()) % width == 0 && deltaChangedAtEndOfBuffer) {
             builder.append(new int[]{32, 13});
         }
         //make sure we sync the cursor back
         if(!deltaChangedAtEndOfBuffer) {
-            if((size + promptLength()) % width == 0 && Config.isOSPOSIXCompatible()) {
-                builder.append(syncCursorWhenBufferIsAtTerminalEdge(size + promptLength(), cursor + promptLength(), width));
+            if((size() + promptLength()) % width == 0 && Config.isOSPOSIXCompatible()) {
+                builder.append(syncCursorWhenBufferIsAtTerminalEdge(size() + promptLength(), cursor + promptLength(), width));
             }
             else
-                builder.append(syncCursor(size+promptLength(), cursor+promptLength(), width));
+                builder.append(syncCursor(size()+promptLength(), cursor+promptLength(), width));
         }
 
         out.accept(builder.toArray());
         delta = 0;
         deltaChangedAtEndOfBuffer = true;
+        isPromptDisplayed = true;
     }
 
     private void printDeletedData(Consumer<int[]> out, int width, boolean viMode) {
         IntArrayBuilder builder = new IntArrayBuilder();
-         if(size+promptLength()+Math.abs(delta) >= width) {
+         if(size()+promptLength()+Math.abs(delta) >= width) {
             if(deletingBackward)
             clearAllLinesAndReturnToFirstLine(builder,
                     width, cursor + promptLength() + Math.abs(delta),
-                    size + promptLength() + Math.abs(delta));
+                    size() + promptLength() + Math.abs(delta));
             else
                 clearAllLinesAndReturnToFirstLine(builder,
                         width, cursor + promptLength(),
-                        size + promptLength() + Math.abs(delta));
+                        size() + promptLength() + Math.abs(delta));
         }
 
         moveCursorToStartAndPrint(out, builder, width, false, viMode);
@@ -580,17 +585,39 @@ public class Buffer {
 
     public void replace(Consumer<int[]> out, int[] line, int width) {
         //quick exit
-        if(line == null || size == 0 && line.length == 0)
+        if(line == null || size() == 0 && line.length == 0)
             return;
 
-        int tmpDelta = line.length - size;
-        int oldSize = size+promptLength();
+        if(canPrintChanges()) {
+            int oldSize = size();
+            int oldCursor = cursor;
+            //only the part between the common prefix and suffix needs to be updated
+            int max = Math.min(size(), line.length);
+            int prefix = 0;
+            while(prefix < max && this.line.get(prefix) == line[prefix])
+                prefix++;
+            int suffix = 0;
+            while(suffix < max - prefix && this.line.get(oldSize - 1 - suffix) == line[line.length - 1 - suffix])
+                suffix++;
+            clear();
+            doInsert(line);
+            //control chars are not inserted
+            if(size() != line.length) {
+                prefix = 0;
+                suffix = 0;
+            }
+            printChanges(out, prefix, size() - suffix, oldSize - suffix, oldSize, oldCursor, width);
+            return;
+        }
+
+        int tmpDelta = line.length - size();
+        int oldSize = size()+promptLength();
         int oldCursor = cursor + promptLength();
         clear();
         doInsert(line);
         delta = tmpDelta;
         //deltaChangedAtEndOfBuffer = false;
-        deltaChangedAtEndOfBuffer = (cursor == size);
+        deltaChangedAtEndOfBuffer = (cursor == size());
 
         IntArrayBuilder builder = new IntArrayBuilder();
         if(oldCursor >= width)
@@ -668,12 +695,12 @@ public class Buffer {
             builder.append(prompt.getANSI());
 
         //dont print out the line if its empty
-        if(size > 0) {
+        if(size() > 0) {
             if(isMasking()) {
                 //no output
                 if(prompt.getMask() != '\u0000') {
                     //only output the masked char
-                    int[] mask = new int[size];
+                    int[] mask = new int[size()];
                     Arrays.fill(mask, prompt.getMask());
                     builder.append(mask);
                 }
@@ -683,18 +710,18 @@ public class Buffer {
         }
 
         //pad if we are at the end of the terminal
-        if((size + promptLength()) % width == 0 && cursor == size) {
+        if((size() + promptLength()) % width == 0 && cursor == size()) {
             builder.append(new int[]{32, 13});
         }
         //make sure we sync the cursor back
         if(!deltaChangedAtEndOfBuffer) {
-            if((size + promptLength()) % width == 0 && Config.isOSPOSIXCompatible())
-                builder.append(syncCursor(size+promptLength()-1, cursor+promptLength()-1, width));
+            if((size() + promptLength()) % width == 0 && Config.isOSPOSIXCompatible())
+                builder.append(syncCursor(size()+promptLength()-1, cursor+promptLength()-1, width));
             else
-                builder.append(syncCursor(size+promptLength(), cursor+promptLength(), width));
+                builder.append(syncCursor(size()+promptLength(), cursor+promptLength(), width));
          }
         //end of buffer and vi mode
-        else if(viMode && cursor == size) {
+        else if(viMode && cursor == size()) {
             builder.append(moveNumberOfColumns(1, 'D'));
             cursor--;
         }
@@ -703,10 +730,95 @@ public class Buffer {
         isPromptDisplayed = true;
     }
 
+    /**
+     * If the prompt and line are displayed as we last printed them, we can
+     * update the terminal with only the changes to the line.
+     */
+    private boolean canPrintChanges() {
+        return isPromptDisplayed && !disablePrompt && !isMasking();
+    }
+
+    /**
+     * Update the terminal after line[from, oldEnd) of the displayed line
+     * was replaced with line[from, newEnd) of the current line.
+     * Only the changed part of the line is written. If the rest of the line is
+     * on the same row we insert or delete characters, otherwise the tail of the
+     * line is reprinted and any rows left over from the old line are erased.
+     *
+     * @param out output
+     * @param from start of the change
+     * @param newEnd end of the change in the current line
+     * @param oldEnd end of the change in the displayed line
+     * @param oldSize size of the displayed line
+     * @param oldCursor cursor position on the displayed line
+     * @param width terminal width
+     */
+    private void printChanges(Consumer<int[]> out, int from, int newEnd, int oldEnd,
+                              int oldSize, int oldCursor, int width) {
+        IntArrayBuilder builder = new IntArrayBuilder();
+        int start = promptLength() + from;
+        moveCursor(builder, promptLength() + oldCursor, start, width);
+        int position = start;
+        if((promptLength() + Math.max(size(), oldSize)) / width == start / width) {
+            if(from == size())
+                builder.append(ANSI.ERASE_LINE_FROM_CURSOR);
+            else if(from == newEnd && insertDeleteCharacters)
+                builder.append(moveNumberOfColumns(oldEnd - from, DELETE_CHARACTERS));
+            else if(from == oldEnd && insertDeleteCharacters) {
+                builder.append(moveNumberOfColumns(newEnd - from, INSERT_CHARACTERS));
+                builder.append(this.line.toArray(from, newEnd));
+                position = promptLength() + newEnd;
+            }
+            else {
+                builder.append(line.toArray(from, size()));
+                position = promptLength() + size();
+                if(oldSize > size())
+                    builder.append(ANSI.ERASE_LINE_FROM_CURSOR);
+            }
+        }
+        else {
+            if(from < size()) {
+                builder.append(line.toArray(from, size()));
+                position = promptLength() + size();
+                //pad if we are at the end of the terminal
+                if(position % width == 0)
+                    builder.append(new int[]{32, 13});
+            }
+            if(oldSize > size()) {
+                builder.append(ANSI.ERASE_LINE_FROM_CURSOR);
+                int rows = (promptLength() + oldSize) / width - position / width;
+                for(int i = 0; i < rows; i++) {
+                    builder.append(ANSI.MOVE_LINE_DOWN);
+                    builder.append(ANSI.ERASE_WHOLE_LINE);
+                }
+                if(rows > 0)
+                    builder.append(moveNumberOfColumns(rows, 'A'));
+            }
+        }
+        moveCursor(builder, position, promptLength() + cursor, width);
+        out.accept(builder.toArray());
+        delta = 0;
+        deltaChangedAtEndOfBuffer = true;
+        isPromptDisplayed = true;
+    }
+
+    private void moveCursor(IntArrayBuilder builder, int currentPos, int newPos, int width) {
+        int rows = currentPos / width - newPos / width;
+        if(rows > 0)
+            builder.append(moveNumberOfColumns(rows, 'A'));
+        else if(rows < 0)
+            builder.append(moveNumberOfColumns(-rows, 'B'));
+        int columns = currentPos % width - newPos % width;
+        if(columns > 0)
+            builder.append(moveNumberOfColumns(columns, 'D'));
+        else if(columns < 0)
+            builder.append(moveNumberOfColumns(-columns, 'C'));
+    }
+
     public int[] multiLine() {
         if (multiLine) {
-            int[] tmpLine = Arrays.copyOf(multiLineBuffer, multiLineBuffer.length + size);
-            System.arraycopy(line, 0, tmpLine, multiLineBuffer.length, size);
+            int[] tmpLine = Arrays.copyOf(multiLineBuffer, multiLineBuffer.length + size());
+            line.copyTo(0, size(), tmpLine, multiLineBuffer.length);
             return  tmpLine;
         }
         else {
@@ -724,29 +836,41 @@ public class Buffer {
     }
 
     public void delete(Consumer<int[]> out, int delta, int width, boolean viMode) {
+        int oldSize = size();
+        int oldCursor = cursor;
         if (delta > 0) {
-            delta = Math.min(delta, size - cursor);
-            System.arraycopy(line, cursor + delta, line, cursor, size - cursor + delta);
-            size -= delta;
+            delta = Math.min(delta, size() - cursor);
+            line.delete(cursor, cursor + delta);
             this.delta =- delta;
             deletingBackward = false;
         }
         else if (delta < 0) {
             delta = - Math.min(- delta, cursor);
-            System.arraycopy(line, cursor, line, cursor + delta, size - cursor);
-            size += delta;
+            line.delete(cursor + delta, cursor);
             cursor += delta;
             this.delta =+ delta;
             deletingBackward = true;
         }
 
+        if(canPrintChanges()) {
+            if(size() < oldSize)
+                printChanges(out, cursor, cursor, cursor + oldSize - size(), oldSize, oldCursor, width);
+            //end of buffer and vi mode
+            if(viMode && cursor == size() && cursor > 0) {
+                out.accept(moveNumberOfColumns(1, 'D'));
+                cursor--;
+            }
+            this.delta = 0;
+            return;
+        }
+
         if(viMode) {
             //if(!deletingBackward)
             //    cursor--;
-            deltaChangedAtEndOfBuffer = ((cursor ) == size);
+            deltaChangedAtEndOfBuffer = ((cursor ) == size());
         }
         else
-            deltaChangedAtEndOfBuffer = (cursor == size);
+            deltaChangedAtEndOfBuffer = (cursor == size());
         //finally print our changes
         print(out, width, viMode);
     }
@@ -765,13 +889,15 @@ public class Buffer {
      * Switch case if the current character is a letter.
      */
     void changeCase(Consumer<int[]> out) {
-        if(Character.isLetter(line[cursor])) {
-            if(Character.isLowerCase(line[cursor]))
-                line[cursor] = Character.toUpperCase(line[cursor]);
+        int c = get(cursor);
+        if(Character.isLetter(c)) {
+            if(Character.isLowerCase(c))
+                c = Character.toUpperCase(c);
             else
-                line[cursor] = Character.toLowerCase(line[cursor]);
+                c = Character.toLowerCase(c);
+            line.set(cursor, c);
 
-            out.accept(new int[]{line[cursor]});
+            out.accept(new int[]{c});
         }
     }
 
@@ -779,9 +905,9 @@ public class Buffer {
      * Up case if the current character is a letter
      */
     void upCase(Consumer<int[]> out) {
-        if(Character.isLetter(line[cursor])) {
-            line[cursor] = Character.toUpperCase(line[cursor]);
-            out.accept(new int[]{line[cursor]});
+        if(Character.isLetter(get(cursor))) {
+            line.set(cursor, Character.toUpperCase(get(cursor)));
+            out.accept(new int[]{get(cursor)});
         }
     }
 
@@ -789,9 +915,9 @@ public class Buffer {
      * Lower case if the current character is a letter
      */
     void downCase(Consumer<int[]> out) {
-        if(Character.isLetter(line[cursor])) {
-            line[cursor] = Character.toLowerCase(line[cursor]);
-            out.accept(new int[]{line[cursor]});
+        if(Character.isLetter(get(cursor))) {
+            line.set(cursor, Character.toLowerCase(get(cursor)));
+            out.accept(new int[]{get(cursor)});
         }
     }
 
@@ -803,8 +929,9 @@ public class Buffer {
     }
 
     private void doReplace(Consumer<int[]> out, int pos, int rChar) {
-        if(pos > -1 && pos <= size) {
-            line[pos] = rChar;
+        if(pos > -1 && pos <= size()) {
+            if(pos < size())
+                line.set(pos, rChar);
             out.accept(new int[]{rChar});
         }
     }
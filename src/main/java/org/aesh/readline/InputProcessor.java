@@ -59,4 +59,15 @@ public interface InputProcessor {
      * @return the Connection
      */
     Connection connection();
+
+    /**
+     * Run a task from another thread, eg when an asynchronous completion is done.
+     * The task is run when no input is being processed and is not run if the
+     * line has been returned.
+     *
+     * @param task task that can use the buffer
+     */
+    default void execute(Runnable task) {
+        task.run();
+    }
 }
@@ -33,9 +33,11 @@ import org.aesh.terminal.Key;
 import org.aesh.tty.Signal;
 import org.aesh.tty.Size;
 import org.aesh.util.Config;
+import org.aesh.util.IntArrayBuilder;
 import org.aesh.util.Parser;
 import org.aesh.tty.Connection;
 import org.aesh.util.LoggerUtil;
+import org.aesh.util.WcWidth;
 
 import java.util.List;
 import java.util.Optional;
@@ -53,10 +55,14 @@ import java.util.logging.Logger;
 public class Readline {
 
     private static final Logger LOGGER = LoggerUtil.getLogger(Readline.class.getName());
+    //tab stops used when a pasted tab is expanded
+    private static final int TAB_WIDTH = 8;
 
     private final ActionDecoder decoder;
     private AeshInputProcessor inputProcessor;
     private Size size;
+    //inside a bracketed paste, reset when a line is finished
+    private boolean bracketedPaste;
 
     private CompletionHandler completionHandler;
     private EditMode editMode;
@@ -87,13 +93,26 @@ public class Readline {
 
     private void readInput() {
         synchronized (this) {
-            while (true) {
-                if (decoder.hasNext() && inputProcessor != null && !inputProcessor.paused) {
-                    inputProcessor.parse(decoder.next());
-                } else {
-                    return;
+            //all output produced while processing the input is written at once
+            Connection conn = inputProcessor != null ? inputProcessor.connection() : null;
+            if (conn != null)
+                conn.startBuffering();
+            try {
+                while (true) {
+                    if (decoder.hasNext() && inputProcessor != null && !inputProcessor.paused) {
+                        inputProcessor.parse(decoder.next());
+                    } else {
+                        //write out all the plain input we got in one go
+                        if (inputProcessor != null)
+                            inputProcessor.flushInsert();
+                        return;
+                    }
                 }
             }
+            finally {
+                if (conn != null)
+                    conn.flush();
+            }
         }
     }
 
@@ -163,6 +182,8 @@ public class Readline {
         private final ConsoleBuffer consoleBuffer;
         private String returnValue;
         private List<Function<String,Optional<String>>> preProcessors;
+        //plain input that is not yet inserted into the buffer
+        private IntArrayBuilder pendingInsert = new IntArrayBuilder();
 
         private AeshInputProcessor(
                 Connection conn,
@@ -186,12 +207,17 @@ public class Readline {
         }
 
         private void finish(String s) {
+            consoleBuffer.completer().cancelCompletion();
+            //a lost paste end marker must not affect the next line
+            bracketedPaste = false;
             conn.setStdinHandler(prevReadHandler);
             conn.setSizeHandler(prevSizeHandler);
             conn.setSignalHandler(prevEventHandler);
             synchronized (Readline.this) {
                 inputProcessor = null;
             }
+            //do not delay the output until all the input is processed
+            conn.flush();
             requestHandler.accept(s);
         }
 
@@ -200,17 +226,37 @@ public class Readline {
          * @param event event
          */
         private void parse(KeyAction event) {
+            //the buffer will change, completions that are still running are stale
+            consoleBuffer.completer().cancelCompletion();
+            if (event == Key.BRACKETED_PASTE_START || event == Key.BRACKETED_PASTE_END) {
+                bracketedPaste = event == Key.BRACKETED_PASTE_START;
+                return;
+            }
+            //pasted text is inserted as is, only newlines are handled as usual
+            if (bracketedPaste && !isNewLine(event)) {
+                for (int i = 0; i < event.length(); i++) {
+                    if (event.getCodePointAt(i) == '\t')
+                        queueTab();
+                    else
+                        queueInsert(event.getCodePointAt(i));
+                }
+                return;
+            }
             //TODO: the editModes need to parse/handle this, ref ignoreeof
             //ctrl-d
             if (event.length() == 1) {
-                if (event.getCodePointAt(0) == 4 && getBuffer().buffer().length() == 0) {
-                    finish(null);
-                    return;
+                if (event.getCodePointAt(0) == 4) {
+                    flushInsert();
+                    if (getBuffer().buffer().length() == 0) {
+                        finish(null);
+                        return;
+                    }
                 }
             }
 
             Action action = editMode.parse(event);
             if (action != null) {
+                flushInsert();
                 synchronized (Readline.this) {
                     paused = true;
                 }
@@ -228,10 +274,44 @@ public class Readline {
             }
             else {
                 if(Key.isPrintable(event.buffer()) && notInCommandNode())
-                    this.getBuffer().writeChar((char) event.buffer().array()[0]);
+                    queueInsert(event.getCodePointAt(0));
             }
         }
 
+        /**
+         * Plain input is collected and inserted into the buffer with one
+         * redraw when the next action is parsed or all input is read.
+         */
+        private void queueInsert(int codePoint) {
+            //the buffer only accept single width chars
+            if (WcWidth.width(codePoint) == 1)
+                pendingInsert.append(codePoint);
+        }
+
+        /**
+         * The buffer does not accept tabs, a pasted tab is expanded to spaces
+         */
+        private void queueTab() {
+            int column = getBuffer().buffer().cursor() + pendingInsert.size();
+            for (int i = column % TAB_WIDTH; i < TAB_WIDTH; i++)
+                pendingInsert.append(' ');
+        }
+
+        private void flushInsert() {
+            if (pendingInsert.size() > 0) {
+                int[] input = pendingInsert.toArray();
+                pendingInsert = new IntArrayBuilder();
+                getBuffer().writeChars(input);
+            }
+        }
+
+        private boolean isNewLine(KeyAction event) {
+            for (int i = 0; i < event.length(); i++)
+                if (event.getCodePointAt(i) != '\n' && event.getCodePointAt(i) != '\r')
+                    return false;
+            return true;
+        }
+
         private boolean notInCommandNode() {
             return !(editMode.getMode() == EditMode.Mode.VI &&
                     editMode.getStatus() == EditMode.Status.COMMAND);
@@ -241,6 +321,8 @@ public class Readline {
          * Make a copy of Connection's current handlers and then use our own.
          */
         private void start() {
+            //only a paste start marker read by this line starts a paste
+            bracketedPaste = false;
             prevReadHandler = conn.getStdinHandler();
             prevSizeHandler = conn.getSizeHandler();
             prevEventHandler = conn.getSignalHandler();
@@ -314,6 +396,21 @@ public class Readline {
         public Connection connection() {
             return conn;
         }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (Readline.this) {
+                if (inputProcessor != this)
+                    return;
+                conn.startBuffering();
+                try {
+                    task.run();
+                }
+                finally {
+                    conn.flush();
+                }
+            }
+        }
     }
 
 }
@@ -19,6 +19,7 @@
  */
 package org.aesh.readline;
 
+import org.aesh.readline.completion.CompletionCache;
 import org.aesh.readline.completion.CompletionHandler;
 import org.aesh.readline.completion.SimpleCompletionHandler;
 import org.aesh.readline.editing.EditMode;
@@ -28,6 +29,7 @@ import org.aesh.readline.history.History;
 import org.aesh.readline.history.InMemoryHistory;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -41,6 +43,14 @@ public class ReadlineBuilder {
     private int historySize = 50;
     private String historyFile;
     private boolean enableHistory = true;
+    private boolean historySearchIndex = false;
+    private boolean compactHistory = false;
+    private boolean historyEraseDuplicates = false;
+    private Executor completionExecutor;
+    private long completionTimeout = -1;
+    private boolean parallelCompletion = false;
+    private CompletionCache completionCache;
+    private boolean completionPaging = false;
 
     public static ReadlineBuilder builder() {
         return new ReadlineBuilder();
@@ -70,6 +80,18 @@ public class ReadlineBuilder {
         return apply(c -> c.historySize = historySize);
     }
 
+    public ReadlineBuilder historySearchIndex(boolean historySearchIndex) {
+        return apply(c -> c.historySearchIndex = historySearchIndex);
+    }
+
+    public ReadlineBuilder compactHistory(boolean compactHistory) {
+        return apply(c -> c.compactHistory = compactHistory);
+    }
+
+    public ReadlineBuilder historyEraseDuplicates(boolean historyEraseDuplicates) {
+        return apply(c -> c.historyEraseDuplicates = historyEraseDuplicates);
+    }
+
      public ReadlineBuilder historyFile(String historyFile) {
          return apply(c -> c.historyFile = historyFile);
     }
@@ -78,6 +100,41 @@ public class ReadlineBuilder {
         return apply(c -> c.completionHandler = completionHandler);
     }
 
+    /**
+     * @param completionExecutor run the completions on this executor instead of the input thread
+     */
+    public ReadlineBuilder completionExecutor(Executor completionExecutor) {
+        return apply(c -> c.completionExecutor = completionExecutor);
+    }
+
+    /**
+     * @param completionTimeout max time in milliseconds to wait for completions run on an executor
+     */
+    public ReadlineBuilder completionTimeout(long completionTimeout) {
+        return apply(c -> c.completionTimeout = completionTimeout);
+    }
+
+    /**
+     * @param parallelCompletion run the completions in parallel on the common fork join pool
+     */
+    public ReadlineBuilder parallelCompletion(boolean parallelCompletion) {
+        return apply(c -> c.parallelCompletion = parallelCompletion);
+    }
+
+    /**
+     * @param completionCache cache the completion results
+     */
+    public ReadlineBuilder completionCache(CompletionCache completionCache) {
+        return apply(c -> c.completionCache = completionCache);
+    }
+
+    /**
+     * @param completionPaging display one screen of completions at a time
+     */
+    public ReadlineBuilder completionPaging(boolean completionPaging) {
+        return apply(c -> c.completionPaging = completionPaging);
+    }
+
     public Readline build() {
         if(editMode == null)
             editMode = EditModeBuilder.builder().create();
@@ -85,13 +142,28 @@ public class ReadlineBuilder {
             history = null;
         }
         else if(history == null) {
+            InMemoryHistory inMemoryHistory;
             if(historyFile == null || !new File(historyFile).isFile())
-                history = new InMemoryHistory(historySize);
+                inMemoryHistory = new InMemoryHistory(historySize, compactHistory);
             else
-                history = new FileHistory(new File(historyFile), historySize);
+                inMemoryHistory = new FileHistory(new File(historyFile), historySize, null, false,
+                        FileHistory.Mode.WRITE_ON_STOP, compactHistory);
+            inMemoryHistory.enableSearchIndex(historySearchIndex);
+            inMemoryHistory.enableEraseDuplicates(historyEraseDuplicates);
+            history = inMemoryHistory;
         }
         if(completionHandler == null)
             completionHandler = new SimpleCompletionHandler();
+        if(completionExecutor != null)
+            completionHandler.setCompletionExecutor(completionExecutor);
+        if(completionTimeout >= 0)
+            completionHandler.setCompletionTimeout(completionTimeout);
+        if(parallelCompletion)
+            completionHandler.setParallelCompletion(true);
+        if(completionCache != null)
+            completionHandler.setCompletionCache(completionCache);
+        if(completionPaging)
+            completionHandler.setCompletionPaging(true);
 
        return new Readline(editMode, history, completionHandler);
     }
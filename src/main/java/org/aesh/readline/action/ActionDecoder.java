@@ -22,43 +22,76 @@ package org.aesh.readline.action;
 import org.aesh.terminal.Key;
 import org.aesh.readline.editing.EditMode;
 
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.NoSuchElementException;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class ActionDecoder {
 
-    private KeyAction[] mappings;
-    private final Queue<KeyAction> actions = new LinkedList<>();
-    private int[] buffer = new int[0];
+    private static final KeyActionTrie DEFAULT_MAPPINGS = new KeyActionTrie(Key.values());
+    //must be a power of two
+    private static final int DEFAULT_CAPACITY = 64;
+    //do not keep large buffers around after a big paste
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+
+    private final EditMode editMode;
+    //pending input stored as a ring buffer starting at head
+    private int[] buffer = new int[DEFAULT_CAPACITY];
+    private int head;
+    private int size;
+    //parsed, but not consumed action
+    private KeyAction next;
+    private final KeyActionTrie.Input pending = new KeyActionTrie.Input() {
+        @Override
+        public int length() {
+            return size;
+        }
+
+        @Override
+        public int codePointAt(int index) {
+            return ActionDecoder.this.codePointAt(index);
+        }
+    };
 
     public ActionDecoder(EditMode editMode) {
-        this.mappings = editMode.keys();
+        this.editMode = editMode;
     }
 
     public ActionDecoder() {
-        this.mappings = Key.values();
+        this.editMode = null;
+    }
+
+    private KeyActionTrie mappings() {
+        //fetched for every parse so changes to the edit mode bindings are picked up
+        return editMode != null ? editMode.keyTrie() : DEFAULT_MAPPINGS;
     }
 
     public void add(int[] input) {
-        buffer = Arrays.copyOf(buffer, buffer.length + input.length);
-        System.arraycopy(input, 0, buffer, buffer.length - input.length, input.length);
+        add(input, 0, input.length);
+    }
+
+    public void add(int[] input, int offset, int length) {
+        ensureCapacity(size + length);
+        int tail = (head + size) & (buffer.length - 1);
+        int first = Math.min(length, buffer.length - tail);
+        System.arraycopy(input, offset, buffer, tail, first);
+        System.arraycopy(input, offset + first, buffer, 0, length - first);
+        size += length;
+        next = null;
     }
 
     public void add(int input) {
-        buffer = Arrays.copyOf(buffer, buffer.length + 1);
-        System.arraycopy(new int[]{input}, 0, buffer, buffer.length - 1, 1);
+        ensureCapacity(size + 1);
+        buffer[(head + size) & (buffer.length - 1)] = input;
+        size++;
+        next = null;
     }
 
     public KeyAction peek() {
-        if (actions.isEmpty()) {
-            return parse(buffer);
-        } else {
-            return actions.peek();
-        }
+        if (next == null)
+            next = parse();
+        return next;
     }
 
     public boolean hasNext() {
@@ -66,56 +99,98 @@ public class ActionDecoder {
     }
 
     public KeyAction next() {
-        if (actions.isEmpty()) {
-            KeyAction next = parse(buffer);
-            if (next != null) {
-                actions.add(next);
-                buffer = Arrays.copyOfRange(buffer, next.length(), buffer.length);
-            }
+        KeyAction action = peek();
+        if (action == null)
+            throw new NoSuchElementException();
+        consume(action.length());
+        return action;
+    }
+
+    /**
+     * @return number of code points that are not yet consumed
+     */
+    public int available() {
+        return size;
+    }
+
+    private void consume(int length) {
+        size -= length;
+        next = null;
+        if (size == 0) {
+            head = 0;
+            if (buffer.length > MAX_RETAINED_CAPACITY)
+                buffer = new int[DEFAULT_CAPACITY];
         }
-        return actions.remove();
-    }
-
-    private KeyAction parse(int[] buffer) {
-        if (buffer.length > 0) {
-            KeyAction candidate = null;
-            int prefixes = 0;
-            next:
-            for (KeyAction action : mappings) {
-                if (action.length() > 0) {
-                    if (action.length() <= buffer.length) {
-                        for (int i = 0;i < action.length();i++) {
-                            if (action.getCodePointAt(i) != buffer[i]) {
-                                continue next;
-                            }
-                        }
-                        if (candidate != null && candidate.length() > action.length()) {
-                            continue;
-                        }
-                        candidate = action;
-                    }
-                    else {
-                        for (int i = 0;i < buffer.length;i++) {
-                            if (action.getCodePointAt(i) != buffer[i]) {
-                                continue next;
-                            }
-                        }
-                        prefixes++;
-                    }
-                }
+        else
+            head = (head + length) & (buffer.length - 1);
+    }
+
+    private int codePointAt(int index) {
+        return buffer[(head + index) & (buffer.length - 1)];
+    }
+
+    private boolean startsWith(KeyAction key) {
+        if (size < key.length())
+            return false;
+        for (int i = 0; i < key.length(); i++)
+            if (codePointAt(i) != key.getCodePointAt(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return true if the pending input is the start of the key, but not all of it
+     */
+    private boolean isPartOf(KeyAction key) {
+        if (size >= key.length())
+            return false;
+        for (int i = 0; i < size; i++)
+            if (codePointAt(i) != key.getCodePointAt(i))
+                return false;
+        return true;
+    }
+
+    private void ensureCapacity(int minimumCapacity) {
+        if (minimumCapacity > buffer.length) {
+            int newCapacity = buffer.length;
+            while (newCapacity < minimumCapacity) {
+                newCapacity <<= 1;
+                if (newCapacity <= 0)
+                    throw new OutOfMemoryError();
             }
-            if (candidate == null) {
-                if (prefixes == 0) {
-                    return new DefaultKeyAction(buffer[0]);
-                }
-            } else {
+            int[] newBuffer = new int[newCapacity];
+            int first = Math.min(size, buffer.length - head);
+            System.arraycopy(buffer, head, newBuffer, 0, first);
+            System.arraycopy(buffer, 0, newBuffer, first, size - first);
+            buffer = newBuffer;
+            head = 0;
+        }
+    }
+
+    private KeyAction parse() {
+        if (size > 0) {
+            //paste markers are recognized independent of the key bindings
+            if (startsWith(Key.BRACKETED_PASTE_START))
+                return Key.BRACKETED_PASTE_START;
+            if (startsWith(Key.BRACKETED_PASTE_END))
+                return Key.BRACKETED_PASTE_END;
+            //a paste marker split between reads, wait for the rest of it.
+            //a single escape is not held back, it is most likely the escape key
+            if (size > 1 && (isPartOf(Key.BRACKETED_PASTE_START) || isPartOf(Key.BRACKETED_PASTE_END)))
+                return null;
+            KeyActionTrie mappings = mappings();
+            KeyAction candidate = mappings.findLongestMatch(pending);
+            if (candidate != null)
                 return candidate;
-            }
+            //the whole buffer is the start of a longer binding, wait for more input
+            if (mappings.isPrefix(pending))
+                return null;
+            return new DefaultKeyAction(codePointAt(0));
         }
         return null;
     }
 
-    private class DefaultKeyAction implements KeyAction {
+    private static class DefaultKeyAction implements KeyAction {
 
         private final int code;
 
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+import java.util.Arrays;
+
+/**
+ * Prefix tree of key bindings, used by {@link ActionDecoder} to resolve
+ * the next key sequence in the input in O(sequence length) instead of
+ * comparing the input against every binding.
+ *
+ * The trie is immutable, edit modes create a new one when their bindings change.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public final class KeyActionTrie {
+
+    private final Node root = new Node();
+
+    public KeyActionTrie(KeyAction[] keys) {
+        for(KeyAction key : keys)
+            add(key);
+    }
+
+    private void add(KeyAction key) {
+        if(key.length() == 0)
+            return;
+        Node node = root;
+        for(int i = 0; i < key.length(); i++)
+            node = node.getOrCreate(key.getCodePointAt(i));
+        //last binding of a sequence wins
+        node.action = key;
+    }
+
+    /**
+     * Code points of the input to match, read in place from the buffer they are stored in
+     */
+    interface Input {
+        int length();
+
+        int codePointAt(int index);
+    }
+
+    /**
+     * Find the longest key binding that the given input starts with.
+     *
+     * @param input input
+     * @return the longest matching binding, or null if none match
+     */
+    KeyAction findLongestMatch(Input input) {
+        KeyAction candidate = null;
+        Node node = root;
+        for(int i = 0; i < input.length(); i++) {
+            node = node.child(input.codePointAt(i));
+            if(node == null)
+                break;
+            if(node.action != null)
+                candidate = node.action;
+        }
+        return candidate;
+    }
+
+    /**
+     * @param input input
+     * @return true if the given input is the start of a longer key binding
+     */
+    boolean isPrefix(Input input) {
+        Node node = root;
+        for(int i = 0; i < input.length() && node != null; i++)
+            node = node.child(input.codePointAt(i));
+        return node != null && node.hasChildren();
+    }
+
+    KeyAction findLongestMatch(int[] input, int offset, int length) {
+        return findLongestMatch(input(input, offset, length));
+    }
+
+    boolean isPrefix(int[] input, int offset, int length) {
+        return isPrefix(input(input, offset, length));
+    }
+
+    private static Input input(int[] input, int offset, int length) {
+        return new Input() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public int codePointAt(int index) {
+                return input[offset + index];
+            }
+        };
+    }
+
+    private static final class Node {
+        private static final int[] NO_KEYS = new int[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        //sorted code points, children[i] is the node for keys[i]
+        private int[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private KeyAction action;
+
+        Node child(int codePoint) {
+            int index = Arrays.binarySearch(keys, codePoint);
+            return index < 0 ? null : children[index];
+        }
+
+        boolean hasChildren() {
+            return children.length > 0;
+        }
+
+        private Node getOrCreate(int codePoint) {
+            int index = Arrays.binarySearch(keys, codePoint);
+            if(index >= 0)
+                return children[index];
+
+            int insert = -(index + 1);
+            int[] newKeys = new int[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            Node node = new Node();
+            newKeys[insert] = codePoint;
+            newChildren[insert] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class ActionMapper {
         else if(function.equals("backward-word"))
             return new MoveBackwardWord();
         else if(function.equals("beginning-of-history"))
-            return new NextHistory(); //TODO: need to add a proper Operation
+            return new BeginningOfHistory();
         else if(function.equals("beginning-of-line"))
             return new BeginningOfLine();
         else if(function.equals("call-last-kbd-macro"))
@@ -93,7 +93,7 @@ public class ActionMapper {
         else if(function.equals("end-kbd-macro"))
             return new NullAction(); // TODO: need to add a proper Operation
         else if(function.equals("end-of-history"))
-            return new NullAction(); // TODO: need to add a proper Operation
+            return new EndOfHistory();
         else if(function.equals("end-of-line"))
             return new EndOfLine();
         else if(function.equals("exchange-point-and-mark"))
@@ -106,10 +106,12 @@ public class ActionMapper {
             return new ForwardSearchHistory();
         else if(function.equals("forward-word"))
             return new MoveForwardWord();
+        else if(function.equals("fuzzy-search-history"))
+            return new FuzzySearchHistory();
         else if(function.equals("history-search-backward"))
-            return new NullAction(); // TODO: need to add a proper Operation
+            return new HistorySearchBackward();
         else if(function.equals("history-search-forward"))
-            return new NullAction(); // TODO: need to add a proper Operation
+            return new HistorySearchForward();
         else if(function.equals("insert-comment"))
             return new NullAction(); // TODO: need to add a proper Operation
         else if(function.equals("insert-completions"))
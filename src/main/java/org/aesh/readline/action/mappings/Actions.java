@@ -61,6 +61,8 @@ public enum Actions {
     FORWARD_SEARCH_HISTORY("forward-search-history"),
     FORWARD_WORD("forward-word"),
     FORWARD_SEARCH_BACKWARD("forward-search-backward"),
+    FUZZY_SEARCH_HISTORY("fuzzy-search-history"),
+    HISTORY_SEARCH_BACKWARD("history-search-backward"),
     HISTORY_SEARCH_FORWARD("history-search-forward"),
     INSERT_COMMENT("insert-comment"),
     INSERT_COMPLETIONS("insert-completions"),
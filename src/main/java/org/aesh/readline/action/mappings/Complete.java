@@ -34,6 +34,8 @@ public class Complete implements ActionEvent {
 
     private boolean askForCompletion = false;
     private KeyAction key;
+    private KeyAction pagingKey;
+    private CompletionHandler completer;
 
     @Override
     public String name() {
@@ -42,7 +44,22 @@ public class Complete implements ActionEvent {
 
     @Override
     public void accept(InputProcessor inputProcessor) {
-        if(askForCompletion) {
+        completer = inputProcessor.getBuffer().completer();
+        if(isPaging()) {
+            if(pagingKey == null)
+                return;
+            //like the more command, space shows the next page and enter the next row
+            if(Key.SPACE.equalTo(pagingKey.buffer().array()) || Key.y.equalTo(pagingKey.buffer().array()))
+                completer.displayMoreCompletions(inputProcessor, true);
+            else if(Key.ENTER.equalTo(pagingKey.buffer().array()) ||
+                    Key.CTRL_J.equalTo(pagingKey.buffer().array()) ||
+                    Key.CTRL_M.equalTo(pagingKey.buffer().array()))
+                completer.displayMoreCompletions(inputProcessor, false);
+            else
+                completer.abortCompletionPaging(inputProcessor);
+            pagingKey = null;
+        }
+        else if(isAsking()) {
             if(key == Key.y) {
                 askForCompletion = false;
                 key = null;
@@ -70,7 +87,9 @@ public class Complete implements ActionEvent {
 
     @Override
     public void input(Action action, KeyAction key) {
-        if(askForCompletion) {
+        if(isPaging())
+            pagingKey = key;
+        else if(isAsking()) {
             if(Key.isPrintable(key.buffer())) {
                 if(Key.y.equalTo(key.buffer().array())) {
                     this.key = Key.y;
@@ -84,7 +103,18 @@ public class Complete implements ActionEvent {
 
     @Override
     public boolean keepFocus() {
-        return askForCompletion;
+        return isAsking() || isPaging();
+    }
+
+    private boolean isPaging() {
+        return completer != null &&
+                completer.completionStatus() == CompletionHandler.CompletionStatus.PAGING_COMPLETIONS;
+    }
+
+    //completions run asynchronously might ask after this action is done
+    private boolean isAsking() {
+        return askForCompletion || (completer != null &&
+                completer.completionStatus() == CompletionHandler.CompletionStatus.ASKING_FOR_COMPLETIONS);
     }
 
 }
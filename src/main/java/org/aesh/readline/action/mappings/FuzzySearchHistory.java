@@ -0,0 +1,199 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action.mappings;
+
+import org.aesh.readline.ConsoleBuffer;
+import org.aesh.readline.InputProcessor;
+import org.aesh.readline.action.Action;
+import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.SearchAction;
+import org.aesh.readline.history.FuzzyHistorySearch;
+import org.aesh.terminal.Key;
+import org.aesh.util.ANSI;
+import org.aesh.util.IntArrayBuilder;
+import org.aesh.util.Parser;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fuzzy search of the history, the best matches are listed below the search line.
+ * Down/up, or the reverse/forward search keys, select the next/previous match.
+ * Enter accepts the selected match, the other movement keys or escape exit the
+ * search with the selected match in the buffer.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FuzzySearchHistory implements SearchAction {
+
+    private static final int MAX_RESULTS = 10;
+    private static final int[] SEARCH_TEXT = Parser.toCodePoints("(fuzzy-search) `");
+    private static final int[] DIVIDER = Parser.toCodePoints("': ");
+    private static final int[] SELECTED = Parser.toCodePoints("> ");
+    private static final int[] NOT_SELECTED = Parser.toCodePoints("  ");
+    private static final String ERASE_SCREEN_FROM_CURSOR = ANSI.START + "J";
+
+    private Status status = Status.SEARCH_NOT_STARTED;
+    private IntArrayBuilder searchArgument;
+    private FuzzyHistorySearch search;
+    private List<FuzzyHistorySearch.Match> matches = Collections.emptyList();
+    private int selected;
+
+    @Override
+    public String name() {
+        return "fuzzy-search-history";
+    }
+
+    @Override
+    public void input(Action action, KeyAction key) {
+        if(action instanceof FuzzySearchHistory) {
+            //the key bound to the search selects the next match
+            if(status != Status.SEARCH_NOT_STARTED)
+                status = Status.SEARCH_NEXT;
+        }
+        else if(action instanceof Interrupt)
+            status = Status.SEARCH_INTERRUPT;
+        else if(action instanceof Enter)
+            status = Status.SEARCH_END;
+        else if(action instanceof DeletePrevChar)
+            status = Status.SEARCH_DELETE;
+        else if(action instanceof NextHistory || action instanceof ReverseSearchHistory)
+            status = Status.SEARCH_NEXT;
+        else if(action instanceof PrevHistory || action instanceof ForwardSearchHistory)
+            status = Status.SEARCH_PREV;
+        else if(Key.isPrintable(key.buffer())) {
+            if(searchArgument == null)
+                searchArgument = new IntArrayBuilder(1);
+            searchArgument.append(key.buffer().array()[0]);
+            status = Status.SEARCH_INPUT;
+        }
+        else
+            status = Status.SEARCH_EXIT;
+    }
+
+    @Override
+    public boolean keepFocus() {
+        return status == Status.SEARCH_INPUT || status == Status.SEARCH_PREV ||
+                status == Status.SEARCH_NEXT || status == Status.SEARCH_DELETE;
+    }
+
+    @Override
+    public void accept(InputProcessor inputProcessor) {
+        ConsoleBuffer buffer = inputProcessor.getBuffer();
+        switch(status) {
+            case SEARCH_NOT_STARTED:
+                search = new FuzzyHistorySearch(buffer.history(), MAX_RESULTS);
+                searchArgument = new IntArrayBuilder(buffer.buffer().multiLine());
+                search();
+                status = Status.SEARCH_INPUT;
+                break;
+            case SEARCH_INPUT:
+                search();
+                break;
+            case SEARCH_DELETE:
+                if(searchArgument != null && searchArgument.size() > 0) {
+                    searchArgument.deleteLastEntry();
+                    search();
+                }
+                break;
+            case SEARCH_NEXT:
+                if(selected < matches.size() - 1)
+                    selected++;
+                break;
+            case SEARCH_PREV:
+                if(selected > 0)
+                    selected--;
+                break;
+            default:
+                break;
+        }
+
+        if(keepFocus()) {
+            printSearch(buffer);
+            return;
+        }
+
+        int[] result = selected < matches.size() ? matches.get(selected).getEntry() : null;
+        //remove the list of matches, the cursor is at the end of the search line
+        buffer.writeOut(ERASE_SCREEN_FROM_CURSOR);
+        if(status == Status.SEARCH_END && result != null) {
+            buffer.moveCursor(-buffer.buffer().cursor());
+            buffer.replace(result);
+            buffer.history().push(buffer.buffer().multiLine());
+            buffer.buffer().reset();
+            inputProcessor.setReturnValue(result);
+        }
+        else if(status == Status.SEARCH_INTERRUPT || result == null) {
+            buffer.moveCursor(-buffer.buffer().cursor());
+            buffer.replace(new int[]{});
+        }
+        else
+            buffer.replace(result);
+
+        status = Status.SEARCH_NOT_STARTED;
+        searchArgument = null;
+        search = null;
+        matches = Collections.emptyList();
+        selected = 0;
+    }
+
+    private void search() {
+        matches = search.search(searchArgument.toArray());
+        selected = 0;
+    }
+
+    private void printSearch(ConsoleBuffer buffer) {
+        int width = buffer.size().getWidth();
+        IntArrayBuilder builder = new IntArrayBuilder(SEARCH_TEXT);
+        builder.append(searchArgument.toArray()).append(DIVIDER);
+        if(selected < matches.size())
+            builder.append(matches.get(selected).getEntry());
+
+        buffer.buffer().disablePrompt(true);
+        buffer.moveCursor(-buffer.buffer().cursor());
+        buffer.writeOut(ANSI.CURSOR_START);
+        buffer.writeOut(ANSI.ERASE_WHOLE_LINE);
+        buffer.replace(builder.toArray());
+        buffer.buffer().disablePrompt(false);
+        //the search line is displayed, not the prompt
+        buffer.buffer().setIsPromptDisplayed(false);
+
+        //list the matches below the search line, one row each, and move back up
+        IntArrayBuilder list = new IntArrayBuilder();
+        for(int i = 0; i < matches.size(); i++) {
+            list.append(new int[]{'\r', '\n'});
+            list.append(i == selected ? SELECTED : NOT_SELECTED);
+            int[] entry = matches.get(i).getEntry();
+            int length = Math.max(0, Math.min(entry.length, width - SELECTED.length - 1));
+            for(int j = 0; j < length; j++)
+                list.append(entry[j] == '\n' ? ' ' : entry[j]);
+            list.append(ANSI.ERASE_LINE_FROM_CURSOR);
+        }
+        list.append(Parser.toCodePoints(ERASE_SCREEN_FROM_CURSOR));
+        if(matches.size() > 0) {
+            list.append(Parser.toCodePoints(ANSI.START + matches.size() + "A"));
+            list.append('\r');
+            int column = width > 0 ? buffer.buffer().length() % width : 0;
+            if(column > 0)
+                list.append(Parser.toCodePoints(ANSI.START + column + "C"));
+        }
+        buffer.writeOut(list.toArray());
+    }
+}
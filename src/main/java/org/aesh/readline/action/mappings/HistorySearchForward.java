@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action.mappings;
+
+import org.aesh.readline.Buffer;
+import org.aesh.readline.InputProcessor;
+import org.aesh.readline.action.Action;
+
+import java.util.Arrays;
+
+/**
+ * Fetch the next history entry starting with the text before the cursor.
+ * The cursor stays where it is. If there are no newer entries starting with
+ * the text, only the text before the cursor is kept.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class HistorySearchForward implements Action {
+
+    @Override
+    public String name() {
+        return "history-search-forward";
+    }
+
+    @Override
+    public void accept(InputProcessor inputProcessor) {
+        Buffer buffer = inputProcessor.getBuffer().buffer();
+        int cursor = buffer.cursor();
+        int[] prefix = Arrays.copyOf(buffer.multiLine(), buffer.multiCursor());
+        int[] history = inputProcessor.getBuffer().history().getNextFetch(prefix);
+        inputProcessor.getBuffer().replace(history != null ? history : prefix);
+        if(prefix.length > 0)
+            inputProcessor.getBuffer().moveCursor(cursor - buffer.cursor());
+    }
+}
@@ -229,6 +229,8 @@ abstract class SearchHistory implements SearchAction {
         //LOGGER.info("moving to: "+cursor);
         inputProcessor.getBuffer().moveCursor(cursor-inputProcessor.getBuffer().buffer().cursor());
         inputProcessor.getBuffer().buffer().disablePrompt(false);
+        //the search line is displayed, not the prompt
+        inputProcessor.getBuffer().buffer().setIsPromptDisplayed(false);
     }
 
     //TODO: depending on specific actions, the cursor should be moved to a correct spot
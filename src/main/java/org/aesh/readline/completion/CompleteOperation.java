@@ -20,6 +20,7 @@
 package org.aesh.readline.completion;
 
 import org.aesh.terminal.formatting.TerminalString;
+import org.aesh.util.Parser;
 
 import java.util.List;
 
@@ -89,6 +90,31 @@ public interface CompleteOperation {
 
     String getFormattedCompletion(String completion);
 
+    /**
+     * A completion that already knows the common prefix of its candidates,
+     * eg from a sorted index, can set it here so it is not computed.
+     * Adding candidates removes the prefix.
+     * By default the prefix is ignored and computed from the candidates.
+     *
+     * @param prefix longest prefix shared by all the completion candidates
+     */
+    default void setCompletionCandidatesPrefix(String prefix) {
+    }
+
+    /**
+     * @return longest prefix shared by all the completion candidates
+     */
+    default String getCompletionCandidatesPrefix() {
+        return Parser.findStartsWithTerminalString(getCompletionCandidates());
+    }
+
+    /**
+     * @return longest prefix shared by all the formatted completion candidates
+     */
+    default String getFormattedCompletionPrefix() {
+        return Parser.findStartsWith(getFormattedCompletionCandidates());
+    }
+
     boolean isIgnoreStartsWith();
 
     void setIgnoreStartsWith(boolean ignoreStartsWith);
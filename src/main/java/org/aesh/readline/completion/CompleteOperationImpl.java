@@ -43,6 +43,7 @@ public class CompleteOperationImpl implements CompleteOperation {
     private char separator = ' ';
     private boolean appendSeparator = true;
     private boolean ignoreOffset = false;
+    private String candidatesPrefix;
 
     public CompleteOperationImpl(String buffer, int cursor) {
         setCursor(cursor);
@@ -167,11 +168,13 @@ public class CompleteOperationImpl implements CompleteOperation {
 
     public void setCompletionCandidatesTerminalString(List<TerminalString> completionCandidates) {
         this.completionCandidates = completionCandidates;
+        candidatesPrefix = null;
     }
 
     @Override
     public void addCompletionCandidate(TerminalString completionCandidate) {
         this.completionCandidates.add(completionCandidate);
+        candidatesPrefix = null;
     }
 
     @Override
@@ -187,15 +190,18 @@ public class CompleteOperationImpl implements CompleteOperation {
     @Override
     public void addCompletionCandidatesTerminalString(List<TerminalString> completionCandidates) {
         this.completionCandidates.addAll(completionCandidates);
+        candidatesPrefix = null;
     }
 
      @Override
      public void removeEscapedSpacesFromCompletionCandidates() {
         Parser.switchEscapedSpacesToSpacesInTerminalStringList(getCompletionCandidates());
+        candidatesPrefix = null;
     }
 
     private void addStringCandidate(String completionCandidate) {
         this.completionCandidates.add(new TerminalString(completionCandidate, true));
+        candidatesPrefix = null;
     }
 
     private void addStringCandidates(List<String> completionCandidates) {
@@ -230,6 +236,8 @@ public class CompleteOperationImpl implements CompleteOperation {
                 if(c.getCharacters().length() >= pos) {
                     c.setCharacters(c.getCharacters().substring(pos));
                     fixedCandidates.add(c);
+                    //the candidates have changed
+                    candidatesPrefix = null;
                 }
                 else
                     fixedCandidates.add(new TerminalString("", true));
@@ -254,6 +262,30 @@ public class CompleteOperationImpl implements CompleteOperation {
             return completion;
     }
 
+    @Override
+    public void setCompletionCandidatesPrefix(String prefix) {
+        candidatesPrefix = prefix;
+    }
+
+    @Override
+    public String getCompletionCandidatesPrefix() {
+        if(candidatesPrefix != null)
+            return candidatesPrefix;
+        return Parser.findStartsWithTerminalString(completionCandidates);
+    }
+
+    @Override
+    public String getFormattedCompletionPrefix() {
+        String prefix = getCompletionCandidatesPrefix();
+        if(ignoreOffset || offset >= cursor)
+            return prefix;
+        //the formatted candidates are the candidates without the first pos chars
+        int pos = cursor - offset;
+        if(prefix.length() >= pos)
+            return prefix.substring(pos);
+        return Parser.findStartsWith(getFormattedCompletionCandidates());
+    }
+
     @Override
     public boolean isIgnoreStartsWith() {
         return ignoreStartsWith;
@@ -0,0 +1,227 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.aesh.terminal.formatting.TerminalString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of completion results, used by {@link CompletionHandler#setCompletionCache(CompletionCache)}.
+ *
+ * The candidates of a completion are cached for the line up to the cursor and
+ * the text after the cursor. If the same line is completed again the cached
+ * candidates are used. If the word that is completed has been extended since
+ * it was cached, the cached candidates that start with the extended word are
+ * used and the completion is not called.
+ * This assumes that the candidates of a completion only depend on the line,
+ * call {@link #invalidate(Completion)} when the data of a completion has changed.
+ *
+ * Entries are removed when they are older than the time to live, or when the
+ * cache is full the least recently used entry is removed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CompletionCache {
+
+    private final long timeToLive;
+    private final Map<Key, Entry> entries;
+
+    /**
+     * @param maxSize max number of cached results
+     * @param timeToLive how long a result is cached, 0 to cache it until it is removed
+     * @param unit unit of timeToLive
+     */
+    public CompletionCache(int maxSize, long timeToLive, TimeUnit unit) {
+        this.timeToLive = unit.toNanos(timeToLive);
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Remove the cached results of the completion
+     */
+    public synchronized void invalidate(Completion completion) {
+        entries.keySet().removeIf(key -> key.completion == completion);
+    }
+
+    /**
+     * Remove all cached results
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Add the cached candidates to the operation, or call the completion if
+     * there is no cached result and cache its candidates.
+     */
+    void complete(Completion completion, CompleteOperation co) {
+        String buffer = co.getBuffer();
+        int cursor = co.getCursor();
+        if(buffer == null || cursor > buffer.length()) {
+            callCompletion(completion, co);
+            return;
+        }
+        if(!fromCache(completion, co, buffer, cursor)) {
+            callCompletion(completion, co);
+            store(completion, co, buffer, cursor);
+        }
+    }
+
+    //the completions of a CompletionHandler are raw, the handler passes them the
+    //operations it creates for them, which is the type they are written for
+    @SuppressWarnings("unchecked")
+    private static void callCompletion(Completion completion, CompleteOperation co) {
+        completion.complete(co);
+    }
+
+    private synchronized boolean fromCache(Completion completion, CompleteOperation co,
+                                           String buffer, int cursor) {
+        String afterCursor = buffer.substring(cursor);
+        long now = System.nanoTime();
+        //look for the line with fewer characters typed in the current word
+        for(int end = cursor; end >= 0; end--) {
+            if(end < cursor && Character.isWhitespace(buffer.charAt(end)))
+                return false;
+            Key key = new Key(completion, buffer.substring(0, end), afterCursor);
+            Entry entry = entries.get(key);
+            if(entry == null)
+                continue;
+            if(timeToLive > 0 && now - entry.created > timeToLive) {
+                entries.remove(key);
+                return false;
+            }
+            if(end == cursor) {
+                entry.copyTo(co, null);
+                return true;
+            }
+            if(!entry.narrowable || entry.offset > end)
+                return false;
+            entry.copyTo(co, buffer.substring(entry.offset, cursor));
+            //the narrowed result keeps the age of the result it is created from
+            entries.put(new Key(completion, buffer.substring(0, cursor), afterCursor),
+                    new Entry(co, buffer, cursor, entry.created));
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void store(Completion completion, CompleteOperation co, String buffer, int cursor) {
+        entries.put(new Key(completion, buffer.substring(0, cursor), buffer.substring(cursor)),
+                new Entry(co, buffer, cursor, System.nanoTime()));
+    }
+
+    private static final class Key {
+        private final Completion completion;
+        private final String beforeCursor;
+        private final String afterCursor;
+        private final int hash;
+
+        Key(Completion completion, String beforeCursor, String afterCursor) {
+            this.completion = completion;
+            this.beforeCursor = beforeCursor;
+            this.afterCursor = afterCursor;
+            hash = 31 * (31 * System.identityHashCode(completion) + beforeCursor.hashCode()) +
+                    afterCursor.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return completion == key.completion && hash == key.hash &&
+                    beforeCursor.equals(key.beforeCursor) && afterCursor.equals(key.afterCursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final List<TerminalString> candidates;
+        private final int offset;
+        private final boolean ignoreOffset;
+        private final char separator;
+        private final boolean appendSeparator;
+        private final boolean ignoreStartsWith;
+        private final boolean ignoreNonEscapedSpace;
+        private final boolean narrowable;
+        private final long created;
+
+        Entry(CompleteOperation co, String buffer, int cursor, long created) {
+            //the candidates are copied since they are changed when they are displayed
+            candidates = copy(co.getCompletionCandidates(), null);
+            offset = co.getOffset();
+            ignoreOffset = co.doIgnoreOffset();
+            separator = co.getSeparator();
+            appendSeparator = co.hasAppendSeparator();
+            ignoreStartsWith = co.isIgnoreStartsWith();
+            ignoreNonEscapedSpace = co.doIgnoreNonEscapedSpace();
+            this.created = created;
+            narrowable = !ignoreOffset && offset >= 0 && offset <= cursor &&
+                    startWith(candidates, buffer.substring(offset, cursor));
+        }
+
+        void copyTo(CompleteOperation co, String word) {
+            co.addCompletionCandidatesTerminalString(copy(candidates, word));
+            co.setOffset(offset);
+            co.setIgnoreOffset(ignoreOffset);
+            co.setSeparator(separator);
+            co.doAppendSeparator(appendSeparator);
+            co.setIgnoreStartsWith(ignoreStartsWith);
+            co.setIgnoreNonEscapedSpace(ignoreNonEscapedSpace);
+        }
+
+        private static List<TerminalString> copy(List<TerminalString> candidates, String startsWith) {
+            List<TerminalString> copy = new ArrayList<>(candidates != null ? candidates.size() : 0);
+            if(candidates != null) {
+                for(TerminalString candidate : candidates)
+                    if(startsWith == null || candidate.getCharacters().startsWith(startsWith))
+                        copy.add(candidate.cloneRenderingAttributes(candidate.getCharacters()));
+            }
+            return copy;
+        }
+
+        private static boolean startWith(List<TerminalString> candidates, String word) {
+            for(TerminalString candidate : candidates)
+                if(!candidate.getCharacters().startsWith(word))
+                    return false;
+            return true;
+        }
+    }
+}
@@ -23,23 +23,58 @@ import org.aesh.readline.Buffer;
 import org.aesh.readline.InputProcessor;
 import org.aesh.readline.action.mappings.ActionMapper;
 import org.aesh.terminal.formatting.TerminalString;
+import org.aesh.util.ANSI;
 import org.aesh.util.Config;
 import org.aesh.util.Parser;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
+ * Find and display the completions for the buffer.
+ *
+ * By default the completions are run on the input thread. If an executor is
+ * set the completions are run on it, input is processed while they are running
+ * and the result is displayed when they are done. The completions are
+ * cancelled if more input is received before they are done. If a timeout is
+ * set, the completions that are done when it expires are used.
+ *
+ * If parallel completion is enabled and no executor is set, the completions
+ * are run in parallel on the common fork join pool and the input thread waits
+ * for all of them. The completions must then be thread safe.
+ *
+ * The completion results are always merged in the order the completions were added.
+ *
+ * If paging is enabled and the completions do not fit on the screen, one screen
+ * of completions is displayed at a time followed by a "--More--" prompt.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public abstract class CompletionHandler<C extends CompleteOperation> {
 
+    private static final String MORE = "--More--";
+
     private CompletionStatus status = CompletionStatus.COMPLETE;
     private int displayCompletionSize = 100;
     private final List<Completion> completionList;
     private Function<Buffer, C> aliasHandler;
+    private Executor executor;
+    private long timeout;
+    private boolean parallel;
+    private CompletionCache cache;
+    private boolean paging;
+    private CompletionPager pager;
+    private CompletableFuture<List<C>> pendingCompletion;
 
     public CompletionHandler() {
         completionList = new ArrayList<>();
@@ -82,6 +117,65 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
             this.completionList.addAll(completions);
     }
 
+    /**
+     * @param executor run the completions on this executor, null to run them on the input thread
+     */
+    public void setCompletionExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getCompletionExecutor() {
+        return executor;
+    }
+
+    /**
+     * Only used when the completions are run on an executor.
+     *
+     * @param timeout max time in milliseconds to wait for the completions, 0 to wait until all are done
+     */
+    public void setCompletionTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getCompletionTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Only used when no executor is set.
+     *
+     * @param parallel run the completions in parallel on the common fork join pool
+     */
+    public void setParallelCompletion(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallelCompletion() {
+        return parallel;
+    }
+
+    /**
+     * @param cache cache the completion results, null to not cache them
+     */
+    public void setCompletionCache(CompletionCache cache) {
+        this.cache = cache;
+    }
+
+    public CompletionCache getCompletionCache() {
+        return cache;
+    }
+
+    /**
+     * @param paging display one screen of completions at a time
+     */
+    public void setCompletionPaging(boolean paging) {
+        this.paging = paging;
+    }
+
+    public boolean isCompletionPaging() {
+        return paging;
+    }
+
     public abstract C createCompleteOperation(String buffer, int cursor);
 
     /**
@@ -99,10 +193,109 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
         if(completionList.size() < 1)
             return;
 
+        if(executor != null) {
+            completeAsync(inputProcessor, buffer);
+            return;
+        }
+
         List<C> possibleCompletions = createCompletionList(buffer);
 
         //LOGGER.info("Found completions: "+possibleCompletions);
 
+        processCompletions(possibleCompletions, buffer, inputProcessor);
+    }
+
+    private void completeAsync(InputProcessor inputProcessor, Buffer buffer) {
+        cancelCompletion();
+        String line = buffer.asString();
+        int cursor = buffer.multiCursor();
+        CompletableFuture<List<C>> completion = findCompletions(buffer);
+        pendingCompletion = completion;
+        completion.thenAccept(possibleCompletions -> inputProcessor.execute(() -> {
+            //the result is stale if the buffer has changed since the completion started
+            if(pendingCompletion != completion || cursor != buffer.multiCursor() ||
+                    !line.equals(buffer.asString()))
+                return;
+            pendingCompletion = null;
+            processCompletions(possibleCompletions, buffer, inputProcessor);
+        }));
+    }
+
+    /**
+     * Cancel the completions that are running on the executor
+     */
+    public void cancelCompletion() {
+        if(pendingCompletion != null) {
+            pendingCompletion.cancel(false);
+            pendingCompletion = null;
+        }
+    }
+
+    /**
+     * Find the completions for the buffer, the completions are run on the executor
+     * if it is set. If the timeout expires, the future is completed with the
+     * completions that are done.
+     * If the returned future is cancelled, the completions that have not started are not run.
+     *
+     * @param buffer buffer
+     * @return the possible completions
+     */
+    public CompletableFuture<List<C>> findCompletions(Buffer buffer) {
+        if(executor == null)
+            return CompletableFuture.completedFuture(createCompletionList(buffer));
+
+        List<C> operations = new ArrayList<>(completionList.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(completionList.size());
+        for(Completion completion : completionList) {
+            C co = createCompleteOperation(buffer);
+            operations.add(co);
+            futures.add(CompletableFuture.runAsync(() -> complete(completion, co), executor));
+        }
+
+        CompletableFuture<List<C>> result = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                .whenComplete((v, e) -> result.complete(collectCompletions(operations, futures)));
+        if(timeout > 0) {
+            ScheduledFuture<?> deadline = Timer.SCHEDULER.schedule(
+                    () -> result.complete(collectCompletions(operations, futures)), timeout, TimeUnit.MILLISECONDS);
+            result.whenComplete((r, e) -> deadline.cancel(false));
+        }
+        //stop the completions that have not started yet
+        result.whenComplete((r, e) -> {
+            if(result.isCancelled())
+                futures.forEach(f -> f.cancel(false));
+        });
+        return result;
+    }
+
+    private List<C> collectCompletions(List<C> operations, List<CompletableFuture<Void>> futures) {
+        List<C> possibleCompletions = new ArrayList<>();
+        for(int i = 0; i < operations.size(); i++) {
+            //completions that failed or are still running are ignored
+            CompletableFuture<Void> future = futures.get(i);
+            C co = operations.get(i);
+            if(future.isDone() && !future.isCompletedExceptionally() &&
+                    co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
+                possibleCompletions.add(co);
+        }
+        return possibleCompletions;
+    }
+
+    private C createCompleteOperation(Buffer buffer) {
+        if(aliasHandler == null)
+            return createCompleteOperation(buffer.asString(), buffer.multiCursor());
+        else
+            return aliasHandler.apply(buffer);
+    }
+
+    private void complete(Completion completion, C co) {
+        if(cache != null)
+            cache.complete(completion, co);
+        else
+            completion.complete(co);
+    }
+
+    private void processCompletions(List<C> possibleCompletions, Buffer buffer, InputProcessor inputProcessor) {
         if(possibleCompletions.size() == 0) {
             //do nothing
         }
@@ -123,16 +316,39 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
     }
 
     private List<C> createCompletionList(Buffer buffer) {
+        if(parallel && completionList.size() > 1)
+            return createCompletionListParallel(buffer);
         List<C> possibleCompletions = new ArrayList<>();
         for(int i=0; i < completionList.size(); i++) {
-            final C co;
-            if(aliasHandler == null)
-                co = createCompleteOperation(buffer.asString(), buffer.multiCursor());
-            else
-                co = aliasHandler.apply(buffer);
+            final C co = createCompleteOperation(buffer);
+
+            complete(completionList.get(i), co);
+
+            if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
+                possibleCompletions.add(co);
+        }
+        return possibleCompletions;
+    }
 
-            completionList.get(i).complete(co);
+    private List<C> createCompletionListParallel(Buffer buffer) {
+        List<C> operations = new ArrayList<>(completionList.size());
+        for(int i=0; i < completionList.size(); i++)
+            operations.add(createCompleteOperation(buffer));
 
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(completionList.size() - 1);
+        for(int i=1; i < completionList.size(); i++) {
+            Completion completion = completionList.get(i);
+            C co = operations.get(i);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> complete(completion, co)));
+        }
+        //the input thread runs the first completion while it waits for the others
+        complete(completionList.get(0), operations.get(0));
+        for(ForkJoinTask<?> task : tasks)
+            task.join();
+
+        //merge in the same order as the completions were added
+        List<C> possibleCompletions = new ArrayList<>();
+        for(C co : operations) {
             if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
                 possibleCompletions.add(co);
         }
@@ -163,8 +379,8 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
 
             if(completions.size() > 100) {
                 if(status == CompletionStatus.ASKING_FOR_COMPLETIONS) {
-                    displayCompletions(completions, buffer, inputProcessor);
                     status = CompletionStatus.COMPLETE;
+                    displayCompletions(completions, buffer, inputProcessor);
                 }
                 else {
                     status = CompletionStatus.ASKING_FOR_COMPLETIONS;
@@ -208,6 +424,19 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
      */
     private void displayCompletions(List<TerminalString> completions, Buffer buffer,
                                     InputProcessor inputProcessor) {
+        if(paging) {
+            CompletionPager completionPager = new CompletionPager(completions,
+                    inputProcessor.getBuffer().size().getWidth());
+            int rows = pageRows(inputProcessor);
+            if(completionPager.remainingRows() > rows) {
+                inputProcessor.getBuffer().writeOut(Config.CR);
+                inputProcessor.getBuffer().writeOut(completionPager.nextRows(rows));
+                inputProcessor.getBuffer().writeOut(MORE);
+                pager = completionPager;
+                status = CompletionStatus.PAGING_COMPLETIONS;
+                return;
+            }
+        }
         Collections.sort(completions);
 
         inputProcessor.getBuffer().writeOut(Config.CR);
@@ -218,7 +447,58 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
         inputProcessor.getBuffer().drawLine();
     }
 
+    /**
+     * Display more completions when they are paged
+     *
+     * @param page display the next page if true, else the next row
+     */
+    public void displayMoreCompletions(InputProcessor inputProcessor, boolean page) {
+        if(pager == null)
+            return;
+        //replace the more prompt with the next rows
+        inputProcessor.getBuffer().writeOut(ANSI.CURSOR_START);
+        inputProcessor.getBuffer().writeOut(ANSI.ERASE_WHOLE_LINE);
+        inputProcessor.getBuffer().writeOut(pager.nextRows(page ? pageRows(inputProcessor) : 1));
+        if(pager.hasMore())
+            inputProcessor.getBuffer().writeOut(MORE);
+        else
+            stopPaging(inputProcessor);
+    }
+
+    /**
+     * Stop displaying the completions when they are paged
+     */
+    public void abortCompletionPaging(InputProcessor inputProcessor) {
+        if(pager == null)
+            return;
+        inputProcessor.getBuffer().writeOut(ANSI.CURSOR_START);
+        inputProcessor.getBuffer().writeOut(ANSI.ERASE_WHOLE_LINE);
+        stopPaging(inputProcessor);
+    }
+
+    private void stopPaging(InputProcessor inputProcessor) {
+        pager = null;
+        status = CompletionStatus.COMPLETE;
+        inputProcessor.getBuffer().buffer().setIsPromptDisplayed(false);
+        inputProcessor.getBuffer().drawLine();
+    }
+
+    private int pageRows(InputProcessor inputProcessor) {
+        //the last row is used by the more prompt
+        return Math.max(1, inputProcessor.getBuffer().size().getHeight() - 1);
+    }
+
     public enum CompletionStatus {
-        ASKING_FOR_COMPLETIONS, COMPLETE;
+        ASKING_FOR_COMPLETIONS, PAGING_COMPLETIONS, COMPLETE;
+    }
+
+    //created when the first completion timeout is used
+    private static final class Timer {
+        private static final ScheduledExecutorService SCHEDULER =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "aesh-completion-timeout");
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.aesh.terminal.formatting.TerminalString;
+import org.aesh.util.Config;
+import org.aesh.util.Parser;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Formats the completion candidates a few rows at a time, in sorted order.
+ *
+ * The candidates are only partially sorted, they are put in a heap and the
+ * candidates of a row are taken from it when the row is formatted. The
+ * candidates are listed row by row so a row only needs the next candidates
+ * in sorted order.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class CompletionPager {
+
+    private final PriorityQueue<TerminalString> remaining;
+    private final int columns;
+    private final int columnWidth;
+
+    CompletionPager(List<TerminalString> completions, int termWidth) {
+        if(termWidth < 1)
+            termWidth = 80;
+        int maxLength = 0;
+        for(TerminalString completion : completions)
+            if(completion.getCharacters().length() > maxLength)
+                maxLength = completion.getCharacters().length();
+        columnWidth = maxLength + 2;
+        columns = Math.max(1, Math.min(termWidth / columnWidth, completions.size()));
+        //creating the heap from a collection is O(n)
+        remaining = new PriorityQueue<>(completions);
+    }
+
+    /**
+     * @return number of rows that are not formatted yet
+     */
+    int remainingRows() {
+        return (remaining.size() + columns - 1) / columns;
+    }
+
+    boolean hasMore() {
+        return !remaining.isEmpty();
+    }
+
+    String nextRows(int rows) {
+        StringBuilder out = new StringBuilder();
+        for(int r = 0; r < rows && hasMore(); r++) {
+            for(int c = 0; c < columns && hasMore(); c++) {
+                TerminalString completion = remaining.poll();
+                out.append(Parser.padRight(columnWidth + completion.getANSILength(), completion.toString()));
+            }
+            out.append(Config.getLineSeparator());
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.aesh.parser.LineParser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Completion of the word at the cursor from a static list of words.
+ *
+ * The words are kept in a sorted array, the words starting with a prefix are
+ * next to each other and are found with a binary search. Finding the matches
+ * of a prefix is O(log n) and adding them to a {@link CompleteOperation} is O(k),
+ * where k is the number of matches.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PrefixCompletion implements Completion {
+
+    private final String[] words;
+
+    public PrefixCompletion(String... words) {
+        this(Arrays.asList(words));
+    }
+
+    /**
+     * @param words the words to complete, duplicates are ignored
+     */
+    public PrefixCompletion(Collection<String> words) {
+        String[] sorted = words.toArray(new String[words.size()]);
+        Arrays.sort(sorted);
+        int size = 0;
+        for(int i = 0; i < sorted.length; i++)
+            if(size == 0 || !sorted[i].equals(sorted[size - 1]))
+                sorted[size++] = sorted[i];
+        this.words = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    @Override
+    public void complete(CompleteOperation completeOperation) {
+        String word = completeOperation.getBuffer() == null ? "" :
+                LineParser.parseLine(completeOperation.getBuffer(),
+                        completeOperation.getCursor()).selectedWordToCursor().word();
+        addCompletionCandidates(completeOperation, word);
+        completeOperation.setOffset(completeOperation.getCursor() - word.length());
+    }
+
+    /**
+     * Add the words starting with the prefix as completion candidates.
+     * If they are the only candidates their common prefix is set on the operation.
+     */
+    public void addCompletionCandidates(CompleteOperation completeOperation, String prefix) {
+        int start = start(prefix);
+        int end = end(prefix, start);
+        if(start < end) {
+            boolean onlyCandidates = completeOperation.getCompletionCandidates().isEmpty();
+            completeOperation.addCompletionCandidates(Arrays.asList(words).subList(start, end));
+            if(onlyCandidates)
+                completeOperation.setCompletionCandidatesPrefix(commonPrefix(prefix, start, end));
+        }
+    }
+
+    /**
+     * @return the words starting with the prefix, sorted
+     */
+    public List<String> findMatches(String prefix) {
+        int start = start(prefix);
+        return Collections.unmodifiableList(Arrays.asList(words).subList(start, end(prefix, start)));
+    }
+
+    public int countMatches(String prefix) {
+        int start = start(prefix);
+        return end(prefix, start) - start;
+    }
+
+    /**
+     * @return the longest prefix shared by all the words starting with the prefix,
+     * or the prefix if no words starts with it
+     */
+    public String findCommonPrefix(String prefix) {
+        int start = start(prefix);
+        int end = end(prefix, start);
+        return start == end ? prefix : commonPrefix(prefix, start, end);
+    }
+
+    private String commonPrefix(String prefix, int start, int end) {
+        //the first and the last word of a sorted range share the prefix of the whole range
+        String first = words[start];
+        String last = words[end - 1];
+        int length = prefix.length();
+        int max = Math.min(first.length(), last.length());
+        while(length < max && first.charAt(length) == last.charAt(length))
+            length++;
+        //do not split a surrogate pair
+        if(length > prefix.length() && length < max && Character.isHighSurrogate(first.charAt(length - 1)))
+            length--;
+        return first.substring(0, length);
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * @return index of the first word that is not less than the prefix
+     */
+    private int start(String prefix) {
+        int low = 0;
+        int high = words.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(words[mid].compareTo(prefix) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first word after start that does not start with the prefix
+     */
+    private int end(String prefix, int start) {
+        int low = start;
+        int high = words.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(words[mid].startsWith(prefix))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
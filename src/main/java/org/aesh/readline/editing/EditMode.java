@@ -20,6 +20,7 @@
 package org.aesh.readline.editing;
 
 import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.KeyActionTrie;
 import org.aesh.terminal.Key;
 import org.aesh.readline.action.Action;
 
@@ -35,6 +36,17 @@ public interface EditMode {
 
     KeyAction[] keys();
 
+    /**
+     * The key bindings of {@link #keys()} as a prefix tree.
+     * Implementations that can change their bindings should cache the trie
+     * and only rebuild it when the bindings change.
+     *
+     * @return key binding trie
+     */
+    default KeyActionTrie keyTrie() {
+        return new KeyActionTrie(keys());
+    }
+
     Status getStatus();
 
     void setStatus(Status status);
@@ -22,6 +22,7 @@ package org.aesh.readline.editing;
 import org.aesh.readline.action.Action;
 import org.aesh.readline.action.ActionEvent;
 import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.KeyActionTrie;
 import org.aesh.readline.action.mappings.ActionMapper;
 import org.aesh.terminal.Key;
 
@@ -41,6 +42,8 @@ public class Emacs implements EditMode {
     private Map<Key,Action> actions;
     private Map<Variable,String> variables;
     private Map<KeyAction,Action> keyEventActions;
+    //rebuilt lazily when the bindings change
+    private KeyActionTrie keyTrie;
 
     //counting how many times eof been pressed
     protected int eofCounter;
@@ -57,6 +60,7 @@ public class Emacs implements EditMode {
     protected void clearDefaultActions() {
         actions.clear();
         keyEventActions.clear();
+        keyTrie = null;
     }
 
     @Override
@@ -66,14 +70,17 @@ public class Emacs implements EditMode {
             actions.put(key, ActionMapper.mapToAction(action));
         else
             keyEventActions.put(createKeyEvent(input), ActionMapper.mapToAction(action));
+        keyTrie = null;
     }
 
     public void addAction(Key input, String action) {
         actions.put(input, ActionMapper.mapToAction(action));
+        keyTrie = null;
     }
 
     public Emacs addAction(Key input, Action action) {
         actions.put(input, action);
+        keyTrie = null;
         return this;
     }
 
@@ -158,6 +165,13 @@ public class Emacs implements EditMode {
         return keys.toArray(new KeyAction[keys.size()]);
     }
 
+    @Override
+    public KeyActionTrie keyTrie() {
+        if(keyTrie == null)
+            keyTrie = new KeyActionTrie(keys());
+        return keyTrie;
+    }
+
     @Override
     public Status getStatus() {
         return Status.EDIT;
@@ -21,6 +21,7 @@
 package org.aesh.readline.editing;
 
 import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.KeyActionTrie;
 import org.aesh.readline.action.mappings.ActionMapper;
 import org.aesh.terminal.Key;
 import org.aesh.readline.action.Action;
@@ -46,6 +47,8 @@ public class Vi implements EditMode {
     private Map<KeyAction,ActionStatus> keyEventActions;
     private Map<Key, ActionStatusGroup> actionGroups;
     private Map<Variable,String> variables;
+    //rebuilt lazily when the bindings change
+    private KeyActionTrie keyTrie;
 
     Vi() {
         actions = new EnumMap<>(Key.class);
@@ -62,6 +65,7 @@ public class Vi implements EditMode {
         else
             keyEventActions.put(createKeyEvent(input),
                     new ActionStatus(ActionMapper.mapToAction(action), Status.EDIT, Status.EDIT));
+        keyTrie = null;
     }
 
     @Override
@@ -80,11 +84,13 @@ public class Vi implements EditMode {
 
     public Vi addAction(Key key, String action, Status status) {
         actions.put(key, new ActionStatus(ActionMapper.mapToAction(action), status, Status.EDIT));
+        keyTrie = null;
         return this;
     }
 
     public Vi addAction(Key key, String action, Status status, Status after) {
         actions.put(key, new ActionStatus(ActionMapper.mapToAction(action), status, after));
+        keyTrie = null;
         return this;
     }
 
@@ -94,21 +100,25 @@ public class Vi implements EditMode {
 
     public Vi addAction(Key key, Action action, Status status) {
         actions.put(key, new ActionStatus(action, status, Status.EDIT));
+        keyTrie = null;
         return this;
     }
 
     public Vi addAction(Key key, Action action, Status status, Status after) {
         actions.put(key, new ActionStatus(action, status, after));
+        keyTrie = null;
         return this;
     }
 
     public Vi addAction(Key key, Action action, Status status, Status after, Status actionStatus) {
         actions.put(key, new ActionStatus(action, status, after, actionStatus));
+        keyTrie = null;
         return this;
     }
 
     public Vi addActionGroup(Key key, ActionStatusGroup group) {
         actionGroups.put(key, group);
+        keyTrie = null;
         return this;
     }
 
@@ -131,6 +141,13 @@ public class Vi implements EditMode {
         return keys.toArray(new KeyAction[keys.size()]);
     }
 
+    @Override
+    public KeyActionTrie keyTrie() {
+        if(keyTrie == null)
+            keyTrie = new KeyActionTrie(keys());
+        return keyTrie;
+    }
+
     @Override
     public Status getStatus() {
         return status;
@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import java.util.Arrays;
+
+/**
+ * Circular buffer of history entries, oldest entry first.
+ * When the buffer is full, pushing a new entry evicts the oldest one in O(1).
+ * The buffer grows as needed up to its max size.
+ *
+ * Removing an entry leaves an empty slot so the entries after it are not moved,
+ * the empty slots are dropped when the buffer runs out of slots. While there
+ * are empty slots an entry is found by counting the live slots in O(log n).
+ *
+ * The entries are stored in the form given by {@link #encode(int[])} and
+ * are decoded when they are requested.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+abstract class AbstractHistoryRing<T> extends HistoryStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxSize;
+    private Object[] entries;
+    //sequence number of the entry in each slot
+    private int[] seqs;
+    private int head;
+    //number of slots in use from head, the first and the last of them are never empty
+    private int used;
+    private int size;
+    private int nextSeq;
+    //only used while there are empty slots
+    private LiveSlots live;
+
+    AbstractHistoryRing(int maxSize) {
+        this.maxSize = maxSize;
+        entries = new Object[Math.max(1, Math.min(maxSize, INITIAL_CAPACITY))];
+        seqs = new int[entries.length];
+    }
+
+    /**
+     * @return the form the entry is stored in
+     */
+    abstract T encode(int[] entry);
+
+    abstract int[] decode(T stored);
+
+    /**
+     * @return the stored entry as UTF-8
+     */
+    byte[] utf8(T stored) {
+        return CompactHistoryStore.toUTF8(decode(stored));
+    }
+
+    @Override
+    int[] push(int[] entry) {
+        if(maxSize < 1)
+            return entry;
+        modCount++;
+        T evicted = size == maxSize ? removeSlot(head) : null;
+        if(used == entries.length)
+            resize();
+        int slot = index(used++);
+        entries[slot] = encode(entry);
+        seqs[slot] = nextSeq++;
+        size++;
+        if(live != null)
+            live.add(slot, 1);
+        return evicted != null ? decode(evicted) : null;
+    }
+
+    @Override
+    public int[] get(int index) {
+        return decode(stored(slot(index)));
+    }
+
+    @Override
+    byte[] getUTF8(int index) {
+        return utf8(stored(slot(index)));
+    }
+
+    @Override
+    int seq(int index) {
+        return seqs[slot(index)];
+    }
+
+    @Override
+    int indexOfSeq(int seq) {
+        int slot = slotOfSeq(seq);
+        if(slot < 0)
+            return -1;
+        if(used == size)
+            return slot >= head ? slot - head : slot + entries.length - head;
+        int wrapped = live.count(head);
+        return slot >= head ? live.count(slot) - wrapped : size - wrapped + live.count(slot);
+    }
+
+    @Override
+    void removeSeq(int seq) {
+        int slot = slotOfSeq(seq);
+        if(slot >= 0) {
+            modCount++;
+            removeSlot(slot);
+        }
+    }
+
+    @Override
+    public int[] remove(int index) {
+        int slot = slot(index);
+        modCount++;
+        return decode(removeSlot(slot));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        Arrays.fill(entries, null);
+        head = 0;
+        used = 0;
+        size = 0;
+        live = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T stored(int slot) {
+        return (T) entries[slot];
+    }
+
+    private int index(int offset) {
+        int index = head + offset;
+        return index < entries.length ? index : index - entries.length;
+    }
+
+    private int slot(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        if(used == size)
+            return index(index);
+        //the live slots from head to the end of the array come before the wrapped ones
+        int wrapped = live.count(head);
+        int fromHead = size - wrapped;
+        return index < fromHead ? live.find(wrapped + index) : live.find(index - fromHead);
+    }
+
+    /**
+     * @return slot of the entry with the sequence number, or -1
+     */
+    private int slotOfSeq(int seq) {
+        //the sequence numbers of the slots in use are increasing
+        int low = 0;
+        int high = used - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int midSeq = seqs[index(mid)];
+            if(midSeq < seq)
+                low = mid + 1;
+            else if(midSeq > seq)
+                high = mid - 1;
+            else
+                return entries[index(mid)] != null ? index(mid) : -1;
+        }
+        return -1;
+    }
+
+    private T removeSlot(int slot) {
+        T removed = stored(slot);
+        entries[slot] = null;
+        size--;
+        if(live != null)
+            live.add(slot, -1);
+        while(used > 0 && entries[head] == null) {
+            head = index(1);
+            used--;
+        }
+        while(used > 0 && entries[index(used - 1)] == null)
+            used--;
+        if(used > size && live == null) {
+            boolean[] slots = new boolean[entries.length];
+            for(int i = 0; i < slots.length; i++)
+                slots[i] = entries[i] != null;
+            live = new LiveSlots(slots);
+        }
+        return removed;
+    }
+
+    /**
+     * Drop the empty slots, the buffer grows if less than half of the slots are empty
+     */
+    private void resize() {
+        int capacity = entries.length;
+        if((used - size) * 2L < capacity)
+            capacity = (int) Math.min(Math.min(capacity * 2L, used > size ? maxSize * 2L : maxSize),
+                    Integer.MAX_VALUE);
+        Object[] resized = new Object[capacity];
+        int[] resizedSeqs = new int[capacity];
+        int count = 0;
+        for(int i = 0; i < used; i++) {
+            int slot = index(i);
+            if(entries[slot] != null) {
+                resized[count] = entries[slot];
+                resizedSeqs[count++] = seqs[slot];
+            }
+        }
+        entries = resized;
+        seqs = resizedSeqs;
+        head = 0;
+        used = size;
+        live = null;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+/**
+ * Circular buffer of history entries stored as UTF-8 bytes, oldest entry first.
+ * An ascii entry uses one byte per character instead of four, entries are
+ * decoded to code points when they are requested.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class CompactHistoryStore extends AbstractHistoryRing<byte[]> {
+
+    CompactHistoryStore(int maxSize) {
+        super(maxSize);
+    }
+
+    @Override
+    byte[] encode(int[] entry) {
+        return toUTF8(entry);
+    }
+
+    @Override
+    int[] decode(byte[] stored) {
+        return fromUTF8(stored);
+    }
+
+    @Override
+    byte[] utf8(byte[] stored) {
+        return stored;
+    }
+
+    /**
+     * Encode the code points as UTF-8. Unpaired surrogates are encoded like any
+     * other code point so every entry is decoded to the same code points.
+     */
+    static byte[] toUTF8(int[] codePoints) {
+        int length = 0;
+        for(int c : codePoints)
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+        byte[] out = new byte[length];
+        int pos = 0;
+        for(int c : codePoints) {
+            if(c < 0x80)
+                out[pos++] = (byte) c;
+            else if(c < 0x800) {
+                out[pos++] = (byte) (0xc0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if(c < 0x10000) {
+                out[pos++] = (byte) (0xe0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else {
+                out[pos++] = (byte) (0xf0 | (c >> 18));
+                out[pos++] = (byte) (0x80 | ((c >> 12) & 0x3f));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return out;
+    }
+
+    static int[] fromUTF8(byte[] bytes) {
+        //every code point starts with a byte that is not a continuation byte
+        int length = 0;
+        for(byte b : bytes)
+            if((b & 0xc0) != 0x80)
+                length++;
+        int[] out = new int[length];
+        int pos = 0;
+        for(int i = 0; i < bytes.length; i += codePointLength(bytes[i]))
+            out[pos++] = codePointAt(bytes, i);
+        return out;
+    }
+
+    /**
+     * @param first first byte of a code point
+     * @return number of bytes of the code point
+     */
+    static int codePointLength(byte first) {
+        int b = first & 0xff;
+        return b < 0x80 ? 1 : b < 0xe0 ? 2 : b < 0xf0 ? 3 : 4;
+    }
+
+    /**
+     * @return the code point starting at the index
+     */
+    static int codePointAt(byte[] bytes, int index) {
+        int b = bytes[index] & 0xff;
+        if(b < 0x80)
+            return b;
+        else if(b < 0xe0)
+            return ((b & 0x1f) << 6) | (bytes[index + 1] & 0x3f);
+        else if(b < 0xf0)
+            return ((b & 0x0f) << 12) | ((bytes[index + 1] & 0x3f) << 6) | (bytes[index + 2] & 0x3f);
+        else
+            return ((b & 0x07) << 18) | ((bytes[index + 1] & 0x3f) << 12) |
+                    ((bytes[index + 2] & 0x3f) << 6) | (bytes[index + 3] & 0x3f);
+    }
+}
@@ -25,16 +25,33 @@ import org.aesh.util.Parser;
 import org.aesh.util.LoggerUtil;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Read the history file at init and writeToStdOut to it at shutdown
+ * Read the history file at init and writeToStdOut to it at shutdown.
+ *
+ * In append mode every new entry is appended to the file when it is pushed,
+ * so the history is not lost if the process dies. The file is compacted to
+ * the max size of the history when it has grown to twice that size, when
+ * an entry is pushed or when the history is stopped.
+ *
+ * In shared mode several processes can use the same history file. New entries
+ * are appended while holding a lock on the file, and the entries appended by
+ * other processes are added to the history before every push or when
+ * {@link #refresh()} is called.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
@@ -43,7 +60,36 @@ public class FileHistory extends InMemoryHistory {
     private final File historyFile;
     private final FileAccessPermission historyFilePermission;
     private final boolean logging;
+    private final Mode mode;
+    private final int maxSize;
+    private final Charset charset;
     private static final Logger LOGGER = LoggerUtil.getLogger(FileHistory.class.getName());
+    //minimum time between each sync of the file to disk
+    private static final long SYNC_INTERVAL = 1000;
+
+    private FileOutputStream appendStream;
+    private Writer appendWriter;
+    private int fileLines;
+    private long lastSync;
+    private boolean reading;
+    private SharedHistoryFile sharedFile;
+
+    public enum Mode {
+        /**
+         * Write the history file when the history is stopped
+         */
+        WRITE_ON_STOP,
+        /**
+         * Append every entry to the history file when it is pushed
+         */
+        APPEND,
+        /**
+         * Append every entry to a history file that is shared with other processes.
+         * The file starts with a header line, and clearing the history does not
+         * clear the file.
+         */
+        SHARED
+    }
 
     public FileHistory(File file, int maxSize) {
         this(file, maxSize, false);
@@ -55,11 +101,85 @@ public class FileHistory extends InMemoryHistory {
 
     public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
                        boolean logging) {
-        super(maxSize);
+        this(file, maxSize, historyFilePermission, logging, false);
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries, -1 for no limit
+     * @param historyFilePermission permissions set on the history file, can be null
+     * @param logging log errors
+     * @param append append each entry to the file when it is pushed instead of
+     *               writing the whole history when stopped
+     */
+    public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                       boolean logging, boolean append) {
+        this(file, maxSize, historyFilePermission, logging, append ? Mode.APPEND : Mode.WRITE_ON_STOP);
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries, -1 for no limit
+     * @param historyFilePermission permissions set on the history file, can be null
+     * @param logging log errors
+     * @param mode when the history file is written
+     */
+    public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                       boolean logging, Mode mode) {
+        this(file, maxSize, historyFilePermission, logging, mode, false);
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries, -1 for no limit
+     * @param historyFilePermission permissions set on the history file, can be null
+     * @param logging log errors
+     * @param mode when the history file is written
+     * @param compact store the entries in memory as UTF-8 bytes
+     */
+    public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                       boolean logging, Mode mode, boolean compact) {
+        this(file, maxSize, historyFilePermission, logging, mode, compact, Charset.defaultCharset());
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries, -1 for no limit
+     * @param historyFilePermission permissions set on the history file, can be null
+     * @param logging log errors
+     * @param mode when the history file is written
+     * @param compact store the entries in memory as UTF-8 bytes
+     * @param charset charset of the history file
+     */
+    public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                       boolean logging, Mode mode, boolean compact, Charset charset) {
+        super(maxSize, compact);
         this.logging = logging;
         historyFile = file;
         this.historyFilePermission = historyFilePermission;
-        readFile();
+        this.mode = mode;
+        this.maxSize = maxSize;
+        this.charset = charset;
+        if(mode == Mode.SHARED)
+            refresh();
+        else
+            readFile();
+    }
+
+    /**
+     * Append mode history where the store already holds the entries of the file
+     *
+     * @param fileLines number of lines in the history file
+     */
+    FileHistory(File file, int maxSize, boolean logging, Charset charset, HistoryStore store, int fileLines) {
+        super(store);
+        this.logging = logging;
+        historyFile = file;
+        historyFilePermission = null;
+        mode = Mode.APPEND;
+        this.maxSize = maxSize;
+        this.charset = charset;
+        this.fileLines = fileLines;
     }
 
     /**
@@ -67,16 +187,26 @@ public class FileHistory extends InMemoryHistory {
      */
     private void readFile() {
         if(historyFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(historyFile))) {
-                String line;
-                while((line = reader.readLine()) != null)
+            reading = true;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(historyFile), charset))) {
+                String line = reader.readLine();
+                //the header of a shared history file is not an entry
+                if(line != null && SharedHistoryFile.isHeader(line))
+                    line = reader.readLine();
+                for(; line != null; line = reader.readLine()) {
                     push(Parser.toCodePoints(line));
+                    fileLines++;
+                }
             } catch(FileNotFoundException ignored) {
                 //AESH-205
             } catch (IOException e) {
                 if(logging)
                     LOGGER.log(Level.WARNING, "Failed to read from history file, ", e);
             }
+            finally {
+                reading = false;
+            }
         }
     }
 
@@ -87,10 +217,14 @@ public class FileHistory extends InMemoryHistory {
      */
     private void writeFile() throws IOException {
         historyFile.delete();
-        try (FileWriter fw = new FileWriter(historyFile)) {
+        try (Writer fw = new OutputStreamWriter(new FileOutputStream(historyFile), charset)) {
             for(int i=0; i < size();i++)
                 fw.write(Parser.fromCodePoints(get(i)) + (Config.getLineSeparator()));
         }
+        setPermissions();
+    }
+
+    private void setPermissions() {
         if (historyFilePermission != null) {
             historyFile.setReadable(false, false);
             historyFile.setReadable(historyFilePermission.isReadable(), historyFilePermission.isReadableOwnerOnly());
@@ -102,10 +236,212 @@ public class FileHistory extends InMemoryHistory {
         }
     }
 
+    /**
+     * In shared mode, add the entries other processes have appended to the history file.
+     */
+    public void refresh() {
+        if(mode == Mode.SHARED) {
+            try {
+                withSharedFile(this::readNewEntries);
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to read from history file, ", e);
+            }
+        }
+    }
+
+    @Override
+    public void push(int[] entry) {
+        if(mode != Mode.SHARED || reading) {
+            super.push(entry);
+            return;
+        }
+        boolean[] pushed = {false};
+        try {
+            withSharedFile(() -> {
+                //add what the other processes have written first, our entry is written after it
+                readNewEntries();
+                pushed[0] = true;
+                super.push(entry);
+            });
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to write to history file", e);
+            //the entry is kept in memory even if the file could not be used
+            if(!pushed[0]) {
+                reading = true;
+                try {
+                    super.push(entry);
+                }
+                finally {
+                    reading = false;
+                }
+            }
+        }
+    }
+
+    private void withSharedFile(SharedHistoryFile.LockedAction action) throws IOException {
+        if(sharedFile == null) {
+            boolean created = !historyFile.exists();
+            sharedFile = new SharedHistoryFile(historyFile, charset);
+            sharedFile.withLock(action);
+            if(created)
+                setPermissions();
+        }
+        else
+            sharedFile.withLock(action);
+    }
+
+    private void readNewEntries() throws IOException {
+        reading = true;
+        try {
+            sharedFile.readNewLines(() -> {
+                super.clear();
+                fileLines = 0;
+            }, line -> {
+                push(line);
+                fileLines++;
+            });
+        }
+        finally {
+            reading = false;
+        }
+    }
+
+    @Override
+    protected void entryAdded(int[] entry) {
+        if(mode == Mode.WRITE_ON_STOP || reading)
+            return;
+        if(mode == Mode.SHARED) {
+            //we are holding the lock on the shared file
+            try {
+                boolean full = isFileFull();
+                sharedFile.append(entry);
+                fileLines++;
+                //compacted from the file, it also holds entries this history does not have
+                if(full)
+                    fileLines = sharedFile.compact(maxSize);
+                if(System.currentTimeMillis() - lastSync >= SYNC_INTERVAL) {
+                    sharedFile.sync();
+                    lastSync = System.currentTimeMillis();
+                }
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to append to history file", e);
+            }
+            return;
+        }
+        try {
+            if(isFileFull())
+                compact();
+            else {
+                if(appendWriter == null)
+                    openAppendWriter();
+                appendWriter.write(Parser.fromCodePoints(entry));
+                appendWriter.write(Config.getLineSeparator());
+                appendWriter.flush();
+                fileLines++;
+                if(System.currentTimeMillis() - lastSync >= SYNC_INTERVAL)
+                    sync();
+            }
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to append to history file", e);
+        }
+    }
+
+    /**
+     * @return true if the file has grown to twice the max size of the history
+     */
+    private boolean isFileFull() {
+        return maxSize > 0 && fileLines >= maxSize * 2L;
+    }
+
+    private void openAppendWriter() throws IOException {
+        boolean created = !historyFile.exists();
+        appendStream = new FileOutputStream(historyFile, true);
+        appendWriter = new BufferedWriter(new OutputStreamWriter(appendStream, charset));
+        if(created)
+            setPermissions();
+    }
+
+    private void closeAppendWriter() throws IOException {
+        if(appendWriter != null) {
+            try {
+                appendWriter.flush();
+                appendStream.getFD().sync();
+                appendWriter.close();
+            }
+            finally {
+                appendWriter = null;
+                appendStream = null;
+            }
+        }
+    }
+
+    private void sync() throws IOException {
+        appendStream.getFD().sync();
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Replace the history file with the current history entries
+     */
+    private void compact() throws IOException {
+        closeAppendWriter();
+        File tmpFile = new File(historyFile.getAbsoluteFile().getParentFile(), historyFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmpFile);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset))) {
+            for(int i=0; i < size();i++) {
+                writer.write(Parser.fromCodePoints(get(i)));
+                writer.write(Config.getLineSeparator());
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        setPermissions();
+        fileLines = size();
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Clear the history. In shared mode only this history is cleared, the
+     * shared file keeps the entries so the history of the other processes is kept.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        if(mode == Mode.APPEND) {
+            try {
+                compact();
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to write history file", e);
+            }
+        }
+    }
+
     @Override
     public void stop() {
        try {
-           writeFile();
+           if(mode == Mode.SHARED) {
+               if(sharedFile != null)
+                   sharedFile.close();
+           }
+           else if(mode == Mode.APPEND) {
+               if(isFileFull())
+                   compact();
+               closeAppendWriter();
+           }
+           else
+               writeFile();
        }
        catch (IOException e) {
            if(logging)
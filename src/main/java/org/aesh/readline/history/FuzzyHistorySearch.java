@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fuzzy search of the history entries.
+ *
+ * An entry matches if it contains the characters of the search term in the
+ * same order, but not necessarily next to each other. Matches are scored,
+ * characters matched next to each other or at the start of a word score higher,
+ * gaps between the matched characters lower the score and recent entries get
+ * a small bonus. The search is case insensitive unless the term contains upper
+ * case characters.
+ *
+ * The search is incremental, when the search term is extended only the entries
+ * that matched the previous term are searched again. Call {@link #reset()} if
+ * the history has been changed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FuzzyHistorySearch {
+
+    private static final int NO_MATCH = Integer.MIN_VALUE;
+    private static final int SCORE_MATCH = 16;
+    private static final int BONUS_BOUNDARY = 8;
+    private static final int BONUS_CONSECUTIVE = 8;
+    private static final int PENALTY_GAP_START = 3;
+    private static final int PENALTY_GAP_EXTENSION = 1;
+    private static final int BONUS_RECENCY = 8;
+
+    private static final Comparator<Match> WORST_FIRST =
+            Comparator.comparingInt(Match::getScore).thenComparingInt(Match::getIndex);
+
+    private final History history;
+    private final int maxResults;
+
+    private int[] lastTerm;
+    //indexes of the entries matching the last term, newest first
+    private int[] lastMatches;
+    private int historySize;
+
+    /**
+     * @param history history to search
+     * @param maxResults max number of matches returned by a search
+     */
+    public FuzzyHistorySearch(History history, int maxResults) {
+        this.history = history;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @param term search term
+     * @return the best matches, best match first
+     */
+    public List<Match> search(int[] term) {
+        if(history.size() != historySize)
+            reset();
+        boolean ignoreCase = isLowerCase(term);
+
+        int[] candidates = null;
+        //entries matching the new term also match the last term
+        if(lastTerm != null && isSubsequence(lastTerm, term, false))
+            candidates = lastMatches;
+
+        int[] matches = new int[candidates != null ? candidates.length : history.size()];
+        int count = 0;
+        PriorityQueue<Match> best = new PriorityQueue<>(WORST_FIRST);
+        int size = candidates != null ? candidates.length : history.size();
+        for(int i = 0; i < size; i++) {
+            int index = candidates != null ? candidates[i] : historySize - 1 - i;
+            int[] entry = history.get(index);
+            int score = score(entry, term, ignoreCase);
+            if(score == NO_MATCH)
+                continue;
+            matches[count++] = index;
+            score += BONUS_RECENCY * (index + 1) / historySize;
+            if(best.size() < maxResults || score > best.peek().getScore())
+                offer(best, new Match(index, entry, score));
+        }
+
+        lastTerm = term.clone();
+        lastMatches = count == matches.length ? matches : Arrays.copyOf(matches, count);
+
+        List<Match> result = new ArrayList<>(best);
+        result.sort(Collections.reverseOrder(WORST_FIRST));
+        return result;
+    }
+
+    /**
+     * Forget the previous search, needed if the history has been changed
+     */
+    public void reset() {
+        lastTerm = null;
+        lastMatches = null;
+        historySize = history.size();
+    }
+
+    private void offer(PriorityQueue<Match> best, Match match) {
+        //entries are searched newest first, a repeated entry is only listed once
+        for(Match other : best)
+            if(Arrays.equals(other.getEntry(), match.getEntry()))
+                return;
+        best.add(match);
+        if(best.size() > maxResults)
+            best.poll();
+    }
+
+    /**
+     * @return the score of the best match of the term in the entry, or NO_MATCH
+     */
+    static int score(int[] entry, int[] term, boolean ignoreCase) {
+        if(term.length == 0)
+            return 0;
+        //find the end of the first match
+        int t = 0;
+        int end = -1;
+        for(int i = 0; i < entry.length; i++) {
+            if(equals(entry[i], term[t], ignoreCase) && ++t == term.length) {
+                end = i;
+                break;
+            }
+        }
+        if(end < 0)
+            return NO_MATCH;
+        //go backwards from the end to find the shortest match ending there
+        int start = end;
+        t = term.length - 1;
+        for(int i = end; i >= 0; i--) {
+            if(equals(entry[i], term[t], ignoreCase) && --t < 0) {
+                start = i;
+                break;
+            }
+        }
+
+        int score = 0;
+        int lastMatch = -1;
+        t = 0;
+        for(int i = start; i <= end && t < term.length; i++) {
+            if(equals(entry[i], term[t], ignoreCase)) {
+                score += SCORE_MATCH;
+                if(isBoundary(entry, i))
+                    score += BONUS_BOUNDARY;
+                if(lastMatch == i - 1)
+                    score += BONUS_CONSECUTIVE;
+                else if(lastMatch >= 0)
+                    score -= PENALTY_GAP_START + PENALTY_GAP_EXTENSION * (i - lastMatch - 2);
+                lastMatch = i;
+                t++;
+            }
+        }
+        return score;
+    }
+
+    private static boolean isBoundary(int[] entry, int index) {
+        if(index == 0)
+            return true;
+        int prev = entry[index - 1];
+        return !Character.isLetterOrDigit(prev) ||
+                (Character.isLowerCase(prev) && Character.isUpperCase(entry[index]));
+    }
+
+    private static boolean isSubsequence(int[] sub, int[] term, boolean ignoreCase) {
+        int s = 0;
+        for(int i = 0; i < term.length && s < sub.length; i++)
+            if(equals(term[i], sub[s], ignoreCase))
+                s++;
+        return s == sub.length;
+    }
+
+    private static boolean isLowerCase(int[] term) {
+        for(int c : term)
+            if(Character.isUpperCase(c))
+                return false;
+        return true;
+    }
+
+    private static boolean equals(int c, int termChar, boolean ignoreCase) {
+        return c == termChar || (ignoreCase && Character.toLowerCase(c) == termChar);
+    }
+
+    /**
+     * A history entry matching the search term
+     */
+    public static final class Match {
+        private final int index;
+        private final int[] entry;
+        private final int score;
+
+        Match(int index, int[] entry, int score) {
+            this.index = index;
+            this.entry = entry;
+            this.score = score;
+        }
+
+        /**
+         * @return index of the entry in the history
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public int[] getEntry() {
+            return entry;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
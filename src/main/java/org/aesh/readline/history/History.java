@@ -19,6 +19,8 @@
  */
 package org.aesh.readline.history;
 
+import org.aesh.util.Parser;
+
 import java.util.List;
 
 /**
@@ -59,6 +61,64 @@ public abstract class History {
 
     public abstract int[] search(int[] search);
 
+    /**
+     * Fetch the previous entry starting with the given prefix
+     *
+     * @param prefix prefix
+     * @return the entry, or null if no older entry starts with the prefix
+     */
+    public int[] getPreviousFetch(int[] prefix) {
+        //move back one entry at the time, implementations should override this
+        for(int i = 0; i < size(); i++) {
+            int[] entry = getPreviousFetch();
+            if(entry == null)
+                return null;
+            if(Parser.arrayStartsWith(entry, prefix))
+                return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Fetch the next entry starting with the given prefix
+     *
+     * @param prefix prefix
+     * @return the entry, or null if no newer entry starts with the prefix
+     */
+    public int[] getNextFetch(int[] prefix) {
+        for(int i = 0; i < size(); i++) {
+            int[] entry = getNextFetch();
+            if(entry == null || entry == getCurrent())
+                return null;
+            if(Parser.arrayStartsWith(entry, prefix))
+                return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Fetch the oldest entry
+     *
+     * @return the entry, or null if the history is empty
+     */
+    public int[] getFirstFetch() {
+        int[] entry = null;
+        for(int i = 0; i < size(); i++)
+            entry = getPreviousFetch();
+        return entry;
+    }
+
+    /**
+     * Move past the newest entry, back to the current line
+     *
+     * @return the current line
+     */
+    public int[] getLastFetch() {
+        for(int i = 0; i < size(); i++)
+            getNextFetch();
+        return getCurrent();
+    }
+
     public abstract void setCurrent(int[] line);
 
     public abstract int[] getCurrent();
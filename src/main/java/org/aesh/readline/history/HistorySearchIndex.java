@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.util.Parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Trigram index over the history entries, used to find the entries that
+ * might contain a search term without looking at every entry.
+ * The entries are also kept sorted, to find the entries starting with a prefix.
+ *
+ * Entries are identified by a sequence number that increases for every
+ * entry added. The candidates for a search term are the entries that
+ * contain all the trigrams of the term, they still need to be verified.
+ * The last candidates are cached, if the search term is extended we only
+ * filter the previous candidates.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class HistorySearchIndex {
+
+    static final int GRAM_SIZE = 3;
+    private static final int[] EMPTY = new int[0];
+    private static final long GRAM_MASK = (1L << 63) - 1;
+
+    private final Map<Long, Postings> index = new HashMap<>();
+    //entries sorted by their UTF-8 bytes, which is the same order as their code points
+    private final TreeMap<byte[], Postings> sorted = new TreeMap<>(HistorySearchIndex::compare);
+
+    private int[] lastSearch;
+    private int[] lastCandidates;
+    private int[] lastPrefix;
+    private int[] lastPrefixCandidates;
+
+    void add(int seq, int[] entry) {
+        add(seq, CompactHistoryStore.toUTF8(entry));
+    }
+
+    /**
+     * @param seq sequence number of the entry
+     * @param utf8 the entry as UTF-8
+     */
+    void add(int seq, byte[] utf8) {
+        grams(utf8, gram -> index.computeIfAbsent(gram, k -> new Postings()).add(seq));
+        sorted.computeIfAbsent(utf8, k -> new Postings()).add(seq);
+        invalidate();
+    }
+
+    void remove(int seq, int[] entry) {
+        remove(seq, CompactHistoryStore.toUTF8(entry));
+    }
+
+    void remove(int seq, byte[] utf8) {
+        grams(utf8, gram -> {
+            Postings postings = index.get(gram);
+            if(postings != null) {
+                postings.remove(seq);
+                if(postings.isEmpty())
+                    index.remove(gram);
+            }
+        });
+        Postings postings = sorted.get(utf8);
+        if(postings != null) {
+            postings.remove(seq);
+            if(postings.isEmpty())
+                sorted.remove(utf8);
+        }
+        invalidate();
+    }
+
+    void clear() {
+        index.clear();
+        sorted.clear();
+        invalidate();
+    }
+
+    /**
+     * @param search search term
+     * @return sorted sequence numbers of the entries that might contain the search term,
+     *         or null if the term is too short to use the index
+     */
+    int[] candidates(int[] search) {
+        if(search.length < GRAM_SIZE)
+            return null;
+        if(lastSearch != null && Arrays.equals(lastSearch, search))
+            return lastCandidates;
+
+        int[] candidates = null;
+        //the entries matching the new term are a subset of the entries matching the last term
+        if(lastSearch != null && Parser.arrayContains(search, lastSearch))
+            candidates = lastCandidates;
+
+        for(int i = 0; i + GRAM_SIZE <= search.length; i++) {
+            Postings postings = index.get(gram(search, i));
+            if(postings == null) {
+                candidates = EMPTY;
+                break;
+            }
+            candidates = candidates == null ? postings.toArray() : postings.retain(candidates);
+            if(candidates.length == 0)
+                break;
+        }
+
+        lastSearch = search;
+        lastCandidates = candidates;
+        return candidates;
+    }
+
+    /**
+     * @param prefix prefix
+     * @return sorted sequence numbers of the entries starting with the prefix
+     */
+    int[] prefixCandidates(int[] prefix) {
+        if(lastPrefix != null && Arrays.equals(lastPrefix, prefix))
+            return lastPrefixCandidates;
+
+        byte[] start = CompactHistoryStore.toUTF8(prefix);
+        int[] candidates = new int[0];
+        int size = 0;
+        for(Map.Entry<byte[], Postings> entry : sorted.tailMap(start, true).entrySet()) {
+            if(!startsWith(entry.getKey(), start))
+                break;
+            int[] seqs = entry.getValue().toArray();
+            if(size + seqs.length > candidates.length)
+                candidates = Arrays.copyOf(candidates, Math.max(size + seqs.length, candidates.length * 2));
+            System.arraycopy(seqs, 0, candidates, size, seqs.length);
+            size += seqs.length;
+        }
+        candidates = Arrays.copyOf(candidates, size);
+        Arrays.sort(candidates);
+
+        lastPrefix = prefix.clone();
+        lastPrefixCandidates = candidates;
+        return candidates;
+    }
+
+    private void invalidate() {
+        lastSearch = null;
+        lastCandidates = null;
+        lastPrefix = null;
+        lastPrefixCandidates = null;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if(bytes.length < prefix.length)
+            return false;
+        for(int i = 0; i < prefix.length; i++)
+            if(bytes[i] != prefix[i])
+                return false;
+        return true;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for(int i = 0; i < length; i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if(diff != 0)
+                return diff;
+        }
+        return a.length - b.length;
+    }
+
+    private static long gram(int[] data, int offset) {
+        return ((long) data[offset] << 42) | ((long) data[offset + 1] << 21) | data[offset + 2];
+    }
+
+    /**
+     * The trigrams of an entry, read from its UTF-8 bytes without decoding the entry
+     */
+    private static void grams(byte[] utf8, LongConsumer consumer) {
+        long gram = 0;
+        int count = 0;
+        for(int i = 0; i < utf8.length; i += CompactHistoryStore.codePointLength(utf8[i])) {
+            //a code point has at most 21 bits, the oldest one is shifted out
+            gram = ((gram << 21) | CompactHistoryStore.codePointAt(utf8, i)) & GRAM_MASK;
+            if(++count >= GRAM_SIZE)
+                consumer.accept(gram);
+        }
+    }
+
+    /**
+     * Sorted sequence numbers of the entries containing a trigram.
+     * Entries are evicted oldest first, so removed entries are usually at the head.
+     */
+    private static final class Postings {
+        private int[] seqs = new int[2];
+        private int head;
+        private int tail;
+
+        void add(int seq) {
+            //an entry can contain the same trigram several times
+            if(tail > head && seqs[tail - 1] == seq)
+                return;
+            if(tail == seqs.length) {
+                if(head > 0) {
+                    System.arraycopy(seqs, head, seqs, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                }
+                if(tail == seqs.length)
+                    seqs = Arrays.copyOf(seqs, seqs.length * 2);
+            }
+            seqs[tail++] = seq;
+        }
+
+        void remove(int seq) {
+            if(head < tail && seqs[head] == seq)
+                head++;
+            else {
+                int index = Arrays.binarySearch(seqs, head, tail, seq);
+                if(index >= 0) {
+                    System.arraycopy(seqs, index + 1, seqs, index, tail - index - 1);
+                    tail--;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOfRange(seqs, head, tail);
+        }
+
+        /**
+         * @return the given sorted candidates that are also in this list
+         */
+        int[] retain(int[] candidates) {
+            int[] out = new int[Math.min(candidates.length, tail - head)];
+            int size = 0;
+            //few candidates, look them up instead of walking the whole list
+            if(candidates.length * 16 < tail - head) {
+                for(int candidate : candidates)
+                    if(Arrays.binarySearch(seqs, head, tail, candidate) >= 0)
+                        out[size++] = candidate;
+                return size == out.length ? out : Arrays.copyOf(out, size);
+            }
+            int i = 0;
+            int j = head;
+            while(i < candidates.length && j < tail) {
+                if(candidates[i] < seqs[j])
+                    i++;
+                else if(candidates[i] > seqs[j])
+                    j++;
+                else {
+                    out[size++] = candidates[i];
+                    i++;
+                    j++;
+                }
+            }
+            return size == out.length ? out : Arrays.copyOf(out, size);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.util.Parser;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Storage of the history entries used by {@link InMemoryHistory}, oldest entry first.
+ *
+ * Every pushed entry gets a sequence number that is higher than the sequence
+ * numbers of the entries before it, and that does not change when other
+ * entries are removed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+abstract class HistoryStore extends AbstractList<int[]> implements RandomAccess {
+
+    /**
+     * Add an entry at the end, evicting the oldest entry if the store is full
+     *
+     * @param entry entry
+     * @return the evicted entry, or null
+     */
+    abstract int[] push(int[] entry);
+
+    /**
+     * @param index index of an entry
+     * @return the entry as UTF-8, see {@link CompactHistoryStore#toUTF8(int[])}
+     */
+    byte[] getUTF8(int index) {
+        return CompactHistoryStore.toUTF8(get(index));
+    }
+
+    /**
+     * Find the next entry containing, or starting with, the term.
+     * Stores that can match the term without decoding every entry override this.
+     *
+     * @param term term
+     * @param prefix only match the entries starting with the term
+     * @param from index of the first entry to look at
+     * @param forward look at the newer entries after from, or the older entries before it
+     * @return index of the entry, or -1 if no entry matches
+     */
+    int search(int[] term, boolean prefix, int from, boolean forward) {
+        for(int i = from; i >= 0 && i < size(); i += forward ? 1 : -1) {
+            int[] entry = get(i);
+            if(prefix ? Parser.arrayStartsWith(entry, term) : Parser.arrayContains(entry, term))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param index index of an entry
+     * @return sequence number of the entry
+     */
+    abstract int seq(int index);
+
+    /**
+     * @param seq sequence number of an entry
+     * @return index of the entry, or -1 if it is not in the store
+     */
+    abstract int indexOfSeq(int seq);
+
+    /**
+     * Remove the entry with the sequence number, without moving the entries after it
+     *
+     * @param seq sequence number of an entry in the store
+     */
+    abstract void removeSeq(int seq);
+
+    @Override
+    public abstract void clear();
+}
@@ -23,7 +23,9 @@ import org.aesh.util.Parser;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A simple in-memory history implementation
@@ -33,26 +35,42 @@ import java.util.List;
  */
 public class InMemoryHistory extends History {
 
-    private final List<int[]> historyList;
+    private final HistoryStore historyList;
     private int lastId = 0;
     private int[] current;
     private SearchDirection searchDirection = SearchDirection.REVERSE;
-    private final int maxSize;
     private int[] lastSearchArgument;
+    //optional trigram index used by search, entries are indexed by their sequence number
+    private HistorySearchIndex searchIndex;
+    //optional content index of the entries to their sequence number, used to erase duplicates
+    private Map<EntryKey, Integer> uniqueEntries;
 
     public InMemoryHistory() {
         this(500);
     }
 
     public InMemoryHistory(int maxSize) {
-        if(maxSize == -1)
-            this.maxSize = Integer.MAX_VALUE;
-        else
-            this.maxSize = maxSize;
-        historyList = new ArrayList<>();
+        this(maxSize, false);
+    }
+
+    /**
+     * @param maxSize max number of entries, -1 for no limit
+     * @param compact store the entries as UTF-8 bytes, which uses less memory
+     *                but the entries are decoded every time they are used
+     */
+    public InMemoryHistory(int maxSize, boolean compact) {
+        this(createStore(maxSize == -1 ? Integer.MAX_VALUE : maxSize, compact));
+    }
+
+    InMemoryHistory(HistoryStore historyList) {
+        this.historyList = historyList;
         current = new int[]{};
     }
 
+    private static HistoryStore createStore(int maxSize, boolean compact) {
+        return compact ? new CompactHistoryStore(maxSize) : new HistoryRing(maxSize);
+    }
+
     @Override
     public void push(int[] entry) {
         if(isEnabled() && entry != null && !Parser.isTrimmedArrayEmpty(entry)) {
@@ -64,24 +82,120 @@ public class InMemoryHistory extends History {
                return;
             }
 
-            if(historyList.size() >= maxSize) {
-                historyList.remove(0);
+            //move a repeated entry to the end
+            EntryKey key = uniqueEntries != null ? new EntryKey(entry) : null;
+            if(key != null) {
+                Integer repeated = uniqueEntries.remove(key);
+                if(repeated != null) {
+                    historyList.removeSeq(repeated);
+                    if(searchIndex != null)
+                        searchIndex.remove(repeated, entry);
+                }
             }
 
-            historyList.add(entry);
+            int oldestSeq = historyList.isEmpty() ? -1 : historyList.seq(0);
+            //the oldest entry is evicted if the history is full
+            int[] evicted = historyList.push(entry);
+            if(evicted != null && oldestSeq >= 0) {
+                if(searchIndex != null)
+                    searchIndex.remove(oldestSeq, evicted);
+                if(uniqueEntries != null)
+                    uniqueEntries.remove(new EntryKey(evicted));
+            }
+            if(evicted != entry) {
+                int seq = historyList.seq(historyList.size() - 1);
+                if(searchIndex != null)
+                    searchIndex.add(seq, entry);
+                if(key != null)
+                    uniqueEntries.put(key, seq);
+            }
             lastId = size();
+            entryAdded(entry);
         }
     }
 
+    /**
+     * Called when an entry is added to the history
+     *
+     * @param entry entry
+     */
+    protected void entryAdded(int[] entry) {
+    }
+
+    /**
+     * Index the history entries to speed up searching large histories.
+     * The index is kept up to date as entries are added and removed.
+     *
+     * @param enable use an index when searching
+     */
+    public void enableSearchIndex(boolean enable) {
+        if(enable && searchIndex == null) {
+            searchIndex = new HistorySearchIndex();
+            buildSearchIndex();
+        }
+        else if(!enable)
+            searchIndex = null;
+    }
+
+    public boolean isSearchIndexEnabled() {
+        return searchIndex != null;
+    }
+
+    private void buildSearchIndex() {
+        searchIndex.clear();
+        for(int i = 0; i < historyList.size(); i++)
+            searchIndex.add(historyList.seq(i), historyList.getUTF8(i));
+    }
+
+    /**
+     * @return sequence number of the entry at the index, -1 before the first entry
+     * and Integer.MAX_VALUE after the last entry
+     */
+    private int seqAt(int index) {
+        if(index < 0)
+            return -1;
+        return index < historyList.size() ? historyList.seq(index) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Only keep the last of repeated entries, a repeated entry is moved to the end
+     * of the history when it is pushed. The entries are indexed by content, which
+     * makes moving a repeated entry and {@link #find(int[])} a hash lookup.
+     *
+     * @param enable erase duplicated entries
+     */
+    public void enableEraseDuplicates(boolean enable) {
+        if(enable && uniqueEntries == null) {
+            uniqueEntries = new HashMap<>();
+            for(int i = historyList.size() - 1; i >= 0; i--) {
+                byte[] entry = historyList.getUTF8(i);
+                int seq = historyList.seq(i);
+                if(uniqueEntries.putIfAbsent(new EntryKey(entry), seq) != null) {
+                    historyList.removeSeq(seq);
+                    if(searchIndex != null)
+                        searchIndex.remove(seq, entry);
+                }
+            }
+            lastId = size();
+        }
+        else if(!enable)
+            uniqueEntries = null;
+    }
+
+    public boolean isEraseDuplicatesEnabled() {
+        return uniqueEntries != null;
+    }
+
     @Override
     public int[] find(int[] search) {
-        int index = historyList.indexOf(search);
-        if(index >= 0) {
-            return get(index);
-        }
-        else
-            return null;
+        if(uniqueEntries != null)
+            return uniqueEntries.containsKey(new EntryKey(search)) ? Arrays.copyOf(search, search.length) : null;
 
+        byte[] bytes = CompactHistoryStore.toUTF8(search);
+        for(int i = historyList.size() - 1; i >= 0; i--)
+            if(Arrays.equals(historyList.getUTF8(i), bytes))
+                return get(i);
+        return null;
     }
 
     @Override
@@ -135,6 +249,67 @@ public class InMemoryHistory extends History {
             return getCurrent();
     }
 
+    @Override
+    public int[] getPreviousFetch(int[] prefix) {
+        if(prefix.length == 0)
+            return getPreviousFetch();
+
+        int id = -1;
+        if(searchIndex != null) {
+            int[] candidates = searchIndex.prefixCandidates(prefix);
+            //the last candidate before lastId
+            int i = Arrays.binarySearch(candidates, seqAt(lastId));
+            i = i < 0 ? -(i + 1) - 1 : i - 1;
+            if(i >= 0)
+                id = historyList.indexOfSeq(candidates[i]);
+        }
+        else
+            id = historyList.search(prefix, true, Math.min(lastId, size()) - 1, false);
+        if(id < 0)
+            return null;
+        lastId = id;
+        return get(lastId);
+    }
+
+    @Override
+    public int[] getNextFetch(int[] prefix) {
+        if(prefix.length == 0) {
+            int[] entry = getNextFetch();
+            return entry == getCurrent() ? null : entry;
+        }
+
+        int id = size();
+        if(searchIndex != null) {
+            int[] candidates = searchIndex.prefixCandidates(prefix);
+            //the first candidate after lastId
+            int i = Arrays.binarySearch(candidates, seqAt(lastId));
+            i = i < 0 ? -(i + 1) : i + 1;
+            if(i < candidates.length)
+                id = historyList.indexOfSeq(candidates[i]);
+        }
+        else {
+            int found = historyList.search(prefix, true, lastId + 1, true);
+            if(found >= 0)
+                id = found;
+        }
+        lastId = id;
+        return id < size() ? get(lastId) : null;
+    }
+
+    @Override
+    public int[] getFirstFetch() {
+        if(size() < 1)
+            return null;
+        lastId = 0;
+        return get(lastId);
+    }
+
+    @Override
+    public int[] getLastFetch() {
+        lastId = size();
+        return getCurrent();
+    }
+
     @Override
     public int[] search(int[] search) {
         if(searchDirection == SearchDirection.REVERSE)
@@ -149,13 +324,27 @@ public class InMemoryHistory extends History {
         else if(lastSearchArgument != null && Arrays.equals(lastSearchArgument, search))
             lastId--;
 
-        for(; lastId >= 0; lastId--)
-            if(Parser.arrayContains(historyList.get(lastId), search)) {
-            //if(historyList.get(lastId).contains(search)) {
-                lastSearchArgument = search;
-                return get(lastId);
+        int[] candidates = searchIndex != null ? searchIndex.candidates(search) : null;
+        if(candidates != null) {
+            //start at the last candidate at or before lastId
+            int i = Arrays.binarySearch(candidates, seqAt(lastId));
+            for(i = i < 0 ? -(i + 1) - 1 : i; i >= 0; i--) {
+                int id = historyList.indexOfSeq(candidates[i]);
+                if(id >= 0 && Parser.arrayContains(historyList.get(id), search)) {
+                    lastId = id;
+                    lastSearchArgument = search;
+                    return get(lastId);
+                }
             }
+            lastId = -1;
+            return null;
+        }
 
+        lastId = historyList.search(search, false, lastId, false);
+        if(lastId >= 0) {
+            lastSearchArgument = search;
+            return get(lastId);
+        }
         return null;
     }
 
@@ -166,13 +355,29 @@ public class InMemoryHistory extends History {
                 Arrays.equals(lastSearchArgument, search))
           lastId++;
 
-        for(; lastId < size(); lastId++ ) {
-            if(Parser.arrayContains(historyList.get(lastId), search)) {
-            //if(historyList.get(lastId).contains(search)) {
-                lastSearchArgument = search;
-                return get(lastId);
+        int[] candidates = searchIndex != null ? searchIndex.candidates(search) : null;
+        if(candidates != null) {
+            //start at the first candidate at or after lastId
+            int i = Arrays.binarySearch(candidates, seqAt(lastId));
+            for(i = i < 0 ? -(i + 1) : i; i < candidates.length; i++) {
+                int id = historyList.indexOfSeq(candidates[i]);
+                if(id >= 0 && id < size() && Parser.arrayContains(historyList.get(id), search)) {
+                    lastId = id;
+                    lastSearchArgument = search;
+                    return get(lastId);
+                }
             }
+            lastId = size();
+            return null;
         }
+
+        int id = historyList.search(search, false, lastId, true);
+        if(id >= 0) {
+            lastId = id;
+            lastSearchArgument = search;
+            return get(lastId);
+        }
+        lastId = size();
         return null;
     }
 
@@ -186,15 +391,22 @@ public class InMemoryHistory extends History {
         return current;
     }
 
+    /**
+     * @return a copy of the entries, oldest entry first
+     */
     @Override
     public List<int[]> getAll() {
-        return historyList;
+        return new ArrayList<>(historyList);
     }
 
     @Override
     public void clear() {
         lastId = 0;
         historyList.clear();
+        if(searchIndex != null)
+            searchIndex.clear();
+        if(uniqueEntries != null)
+            uniqueEntries.clear();
         current = new int[]{};
     }
 
@@ -202,4 +414,32 @@ public class InMemoryHistory extends History {
     public void stop() {
         //does nothing for in-memory atm
     }
+
+    /**
+     * Content of an entry, stored as UTF-8 to keep the index small
+     */
+    private static final class EntryKey {
+        private final byte[] bytes;
+        private final int hash;
+
+        EntryKey(int[] entry) {
+            this(CompactHistoryStore.toUTF8(entry));
+        }
+
+        EntryKey(byte[] bytes) {
+            this.bytes = bytes;
+            hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EntryKey && hash == ((EntryKey) o).hash &&
+                    Arrays.equals(bytes, ((EntryKey) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+/**
+ * Counts the live slots of a store where slots can be removed from the middle,
+ * to find the position of a slot and the slot at a position in O(log n).
+ * It is a Fenwick tree over the slots.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class LiveSlots {
+
+    //tree[i] is the number of live slots in (i - lowestOneBit(i), i]
+    private final int[] tree;
+
+    /**
+     * @param live live[i] is true if slot i is live
+     */
+    LiveSlots(boolean[] live) {
+        tree = new int[live.length + 1];
+        for(int i = 1; i < tree.length; i++) {
+            if(live[i - 1])
+                tree[i]++;
+            int parent = i + (i & -i);
+            if(parent < tree.length)
+                tree[parent] += tree[i];
+        }
+    }
+
+    void add(int slot, int delta) {
+        for(int i = slot + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+    }
+
+    /**
+     * @return number of live slots before the slot
+     */
+    int count(int slot) {
+        int count = 0;
+        for(int i = slot; i > 0; i -= i & -i)
+            count += tree[i];
+        return count;
+    }
+
+    /**
+     * @return the slot of the n:th live slot, counting from 0
+     */
+    int find(int n) {
+        int slot = 0;
+        for(int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = slot + step;
+            if(next < tree.length && tree[next] <= n) {
+                slot = next;
+                n -= tree[next];
+            }
+        }
+        return slot;
+    }
+}
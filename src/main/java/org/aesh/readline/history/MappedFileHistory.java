@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.util.LoggerUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * History backed by a memory mapped history file, for very large history files.
+ *
+ * The file is not read at init, it is only scanned for line breaks. An entry is
+ * decoded when it is used, eg when navigating the history. Searching matches the
+ * encoded search term against the bytes of the file and only decodes the matching lines.
+ * New entries are appended to the file like in {@link FileHistory.Mode#APPEND}
+ * mode, and the file is compacted to the max size of the history when it has
+ * grown to twice that size.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class MappedFileHistory extends FileHistory {
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(MappedFileHistory.class.getName());
+
+    public MappedFileHistory(File file, int maxSize) {
+        this(file, maxSize, false);
+    }
+
+    public MappedFileHistory(File file, int maxSize, boolean logging) {
+        this(file, maxSize, logging, Charset.defaultCharset());
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries, -1 for no limit
+     * @param logging log errors
+     * @param charset charset of the history file, it must encode a line break as a single '\n' byte
+     * @throws IllegalArgumentException if the charset encodes a line break differently, eg UTF-16
+     */
+    public MappedFileHistory(File file, int maxSize, boolean logging, Charset charset) {
+        this(file, maxSize, logging, charset,
+                createStore(file, maxSize == -1 ? Integer.MAX_VALUE : maxSize, logging, charset));
+    }
+
+    private MappedFileHistory(File file, int maxSize, boolean logging, Charset charset, HistoryStore store) {
+        super(file, maxSize, logging, charset, store,
+                store instanceof MappedHistoryStore ? ((MappedHistoryStore) store).mappedLines() : 0);
+    }
+
+    private static HistoryStore createStore(File file, int maxSize, boolean logging, Charset charset) {
+        try {
+            return new MappedHistoryStore(file, maxSize, charset);
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to read from history file, ", e);
+            return new HistoryRing(maxSize);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.util.Parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * History entries read from a memory mapped history file.
+ *
+ * At creation the file is only scanned for line breaks, a line is decoded
+ * when it is requested and the last decoded lines are kept in a small cache.
+ * Entries pushed after the file was mapped are kept in memory.
+ * The sequence number of a mapped line is its line number, the pushed entries
+ * are numbered after the mapped lines.
+ * Searching only decodes the lines whose bytes match the encoded term, so
+ * the charset must encode a line break as a single '\n' byte.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class MappedHistoryStore extends HistoryStore {
+
+    private static final int CACHE_SIZE = 64;
+    private static final int[] NO_LINES = new int[0];
+
+    private final int maxSize;
+    private final Charset charset;
+    private final boolean utf8;
+    private final ByteBuffer mapped;
+    //lineStarts[i] is the start of line i, or -1 if the line has been removed
+    private final int[] lineStarts;
+    private final int mappedLines;
+    //first mapped line that has not been removed
+    private int firstLine;
+    private int mappedSize;
+    //only used when lines after firstLine have been removed
+    private LiveSlots liveLines;
+    private final HistoryRing pushed;
+    private final Map<Integer, int[]> cache = new LinkedHashMap<Integer, int[]>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    MappedHistoryStore(File file, int maxSize, Charset charset) throws IOException {
+        //lines are found, and matched, by their bytes
+        if(!Arrays.equals("\n".getBytes(charset), new byte[] {'\n'}))
+            throw new IllegalArgumentException("Charset " + charset.name() +
+                    " is not supported, a line break must be encoded as a single '\\n' byte");
+        this.maxSize = maxSize;
+        this.charset = charset;
+        utf8 = charset.equals(StandardCharsets.UTF_8);
+        pushed = new HistoryRing(maxSize);
+        if(file.isFile() && file.length() > 0) {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                FileChannel channel = randomAccessFile.getChannel();
+                //a mapping is limited to 2GB, the oldest part of a larger file is skipped
+                long size = channel.size();
+                long start = Math.max(0, size - Integer.MAX_VALUE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size - start);
+                mapped = buffer;
+                lineStarts = findLines(buffer, start > 0);
+            }
+        }
+        else {
+            mapped = ByteBuffer.allocate(0);
+            lineStarts = NO_LINES;
+        }
+        mappedLines = lineStarts.length;
+        //the header of a shared history file is not an entry
+        int header = mappedLines > 0 && SharedHistoryFile.isHeader(Parser.fromCodePoints(line(0))) ? 1 : 0;
+        firstLine = Math.max(header, mappedLines - maxSize);
+        mappedSize = mappedLines - firstLine;
+    }
+
+    /**
+     * @return number of lines in the mapped file
+     */
+    int mappedLines() {
+        return mappedLines;
+    }
+
+    private static int[] findLines(ByteBuffer buffer, boolean skipFirstLine) {
+        int[] starts = new int[1024];
+        int count = 0;
+        int limit = buffer.limit();
+        int position = 0;
+        if(skipFirstLine) {
+            while(position < limit && buffer.get(position) != '\n')
+                position++;
+            position++;
+        }
+        if(position < limit)
+            starts[count++] = position;
+        for(; position < limit; position++) {
+            if(buffer.get(position) == '\n' && position + 1 < limit) {
+                if(count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = position + 1;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private int[] line(int index) {
+        int[] line = cache.get(index);
+        if(line == null) {
+            line = Parser.toCodePoints(new String(lineBytes(index), charset));
+            cache.put(index, line);
+        }
+        return line;
+    }
+
+    private byte[] lineBytes(int index) {
+        int start = lineStarts[index];
+        byte[] bytes = new byte[lineEnd(start) - start];
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = mapped.get(start + i);
+        return bytes;
+    }
+
+    private int lineEnd(int start) {
+        int end = start;
+        while(end < mapped.limit() && mapped.get(end) != '\n')
+            end++;
+        if(end > start && mapped.get(end - 1) == '\r')
+            end--;
+        return end;
+    }
+
+    private boolean lineMatches(int index, byte[] term, boolean prefix) {
+        int start = lineStarts[index];
+        int end = lineEnd(start);
+        if(prefix)
+            return end - start >= term.length && bytesMatch(start, term);
+        for(int i = start; i + term.length <= end; i++)
+            if(bytesMatch(i, term))
+                return true;
+        return false;
+    }
+
+    private boolean bytesMatch(int position, byte[] term) {
+        for(int i = 0; i < term.length; i++)
+            if(mapped.get(position + i) != term[i])
+                return false;
+        return true;
+    }
+
+    @Override
+    int[] push(int[] entry) {
+        modCount++;
+        if(maxSize < 1)
+            return entry;
+        //evict mapped lines before the pushed entries
+        if(size() == maxSize && mappedSize > 0) {
+            int[] evicted = line(firstLine);
+            removeLine(firstLine);
+            pushed.push(entry);
+            return evicted;
+        }
+        return pushed.push(entry);
+    }
+
+    @Override
+    public int[] get(int index) {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return index < mappedSize ? line(mappedLine(index)) : pushed.get(index - mappedSize);
+    }
+
+    @Override
+    byte[] getUTF8(int index) {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        if(index >= mappedSize)
+            return pushed.getUTF8(index - mappedSize);
+        int line = mappedLine(index);
+        int[] cached = cache.get(line);
+        if(cached != null)
+            return CompactHistoryStore.toUTF8(cached);
+        byte[] bytes = lineBytes(line);
+        return utf8 ? bytes : CompactHistoryStore.toUTF8(Parser.toCodePoints(new String(bytes, charset)));
+    }
+
+    @Override
+    int search(int[] term, boolean prefix, int from, boolean forward) {
+        if(from < 0 || from >= size())
+            return -1;
+        if(forward && from < mappedSize) {
+            int index = searchLines(term, prefix, mappedLine(from), true);
+            if(index >= 0)
+                return index;
+            from = mappedSize;
+        }
+        if(from >= mappedSize) {
+            int index = pushed.search(term, prefix, from - mappedSize, forward);
+            if(index >= 0 || forward)
+                return index < 0 ? -1 : mappedSize + index;
+            from = mappedSize - 1;
+        }
+        return from < 0 ? -1 : searchLines(term, prefix, mappedLine(from), false);
+    }
+
+    /**
+     * Match the encoded term against the bytes of the mapped lines, only the
+     * lines that match are decoded to check the match.
+     */
+    private int searchLines(int[] term, boolean prefix, int from, boolean forward) {
+        byte[] encoded = Parser.fromCodePoints(term).getBytes(charset);
+        for(int line = from; line >= firstLine && line < mappedLines; line += forward ? 1 : -1) {
+            if(lineStarts[line] >= 0 && lineMatches(line, encoded, prefix)) {
+                int[] entry = line(line);
+                if(prefix ? Parser.arrayStartsWith(entry, term) : Parser.arrayContains(entry, term))
+                    return liveLines == null ? line - firstLine : liveLines.count(line);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int seq(int index) {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return index < mappedSize ? mappedLine(index) : mappedLines + pushed.seq(index - mappedSize);
+    }
+
+    @Override
+    int indexOfSeq(int seq) {
+        if(seq < mappedLines) {
+            if(seq < firstLine || lineStarts[seq] < 0)
+                return -1;
+            return liveLines == null ? seq - firstLine : liveLines.count(seq);
+        }
+        int index = pushed.indexOfSeq(seq - mappedLines);
+        return index < 0 ? -1 : mappedSize + index;
+    }
+
+    @Override
+    void removeSeq(int seq) {
+        modCount++;
+        if(seq >= mappedLines)
+            pushed.removeSeq(seq - mappedLines);
+        else if(seq >= firstLine && lineStarts[seq] >= 0)
+            removeLine(seq);
+    }
+
+    @Override
+    public int[] remove(int index) {
+        int[] removed = get(index);
+        modCount++;
+        if(index < mappedSize)
+            removeLine(mappedLine(index));
+        else
+            pushed.remove(index - mappedSize);
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return mappedSize + pushed.size();
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        firstLine = mappedLines;
+        mappedSize = 0;
+        liveLines = null;
+        cache.clear();
+        pushed.clear();
+    }
+
+    private int mappedLine(int index) {
+        return liveLines == null ? firstLine + index : liveLines.find(index);
+    }
+
+    private void removeLine(int line) {
+        lineStarts[line] = -1;
+        cache.remove(line);
+        mappedSize--;
+        if(liveLines != null)
+            liveLines.add(line, -1);
+        while(firstLine < mappedLines && lineStarts[firstLine] < 0)
+            firstLine++;
+        if(liveLines == null && mappedSize < mappedLines - firstLine) {
+            boolean[] live = new boolean[mappedLines];
+            for(int i = firstLine; i < mappedLines; i++)
+                live[i] = lineStarts[i] >= 0;
+            liveLines = new LiveSlots(live);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.util.Config;
+import org.aesh.util.Parser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * History file that is shared between several processes.
+ *
+ * All access is done while holding a lock on the file. Every process appends
+ * its new entries to the end of the file and keeps track of how far it has
+ * read, so it only needs to read what the other processes have appended since.
+ *
+ * The first line of the file is a header with a generation number that is
+ * changed every time the file is rewritten (compacted). If the generation has
+ * changed since we read the file it is read again from the start. A file
+ * without the header, eg written by a history that is not shared, is given one.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class SharedHistoryFile implements Closeable {
+
+    //file locks are held by the jvm, so we also need to lock between instances in the same jvm
+    private static final ConcurrentMap<String, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+    private static final String HEADER = "#aesh-history-generation ";
+
+    private final File file;
+    private final Object jvmLock;
+    private final Charset charset;
+    private final byte[] lineSeparator;
+    private final int headerLength;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    //the generation of the file we have read, and how far we have read it
+    private long generation = -1;
+    private long offset;
+
+    interface LockedAction {
+        void run() throws IOException;
+    }
+
+    SharedHistoryFile(File file, Charset charset) throws IOException {
+        this.file = file;
+        this.charset = charset;
+        lineSeparator = Config.getLineSeparator().getBytes(charset);
+        headerLength = header(0).length;
+        jvmLock = JVM_LOCKS.computeIfAbsent(file.getCanonicalPath(), k -> new Object());
+    }
+
+    /**
+     * Run the action while holding the lock on the file
+     */
+    void withLock(LockedAction action) throws IOException {
+        synchronized (jvmLock) {
+            if(channel == null) {
+                randomAccessFile = new RandomAccessFile(file, "rw");
+                channel = randomAccessFile.getChannel();
+            }
+            FileLock lock = channel.lock();
+            try {
+                action.run();
+            }
+            finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Read the lines appended to the file since the last time we read it.
+     * Must be called while holding the lock.
+     *
+     * @param onRewrite called if the file was rewritten and is read from the start
+     * @param onLine called for every new line
+     */
+    void readNewLines(Runnable onRewrite, Consumer<int[]> onLine) throws IOException {
+        long fileGeneration = readGeneration();
+        if(fileGeneration < 0)
+            fileGeneration = addHeader();
+        if(fileGeneration != generation) {
+            generation = fileGeneration;
+            offset = headerLength;
+            onRewrite.run();
+        }
+        long size = channel.size();
+        if(size <= offset)
+            return;
+
+        byte[] data = read(offset, (int) (size - offset));
+        int start = 0;
+        for(int i = 0; i < data.length; i++) {
+            if(data[i] == '\n') {
+                int end = i > start && data[i - 1] == '\r' ? i - 1 : i;
+                onLine.accept(Parser.toCodePoints(new String(data, start, end - start, charset)));
+                start = i + 1;
+            }
+        }
+        //an incomplete last line is read when it is finished
+        offset += start;
+    }
+
+    /**
+     * Append an entry to the end of the file.
+     * Must be called while holding the lock.
+     */
+    void append(int[] entry) throws IOException {
+        long size = channel.size();
+        byte[] line = toBytes(entry);
+        //start on a new line if the file ends with an incomplete line
+        if(size > offset) {
+            byte[] separated = new byte[lineSeparator.length + line.length];
+            System.arraycopy(lineSeparator, 0, separated, 0, lineSeparator.length);
+            System.arraycopy(line, 0, separated, lineSeparator.length, line.length);
+            write(separated, size);
+        }
+        else
+            write(line, size);
+        offset = channel.size();
+    }
+
+    /**
+     * Keep only the last lines of the file, the file is rewritten with a new generation.
+     * Must be called while holding the lock, after reading the new lines.
+     *
+     * @param maxLines number of lines to keep
+     * @return number of lines in the file
+     */
+    int compact(int maxLines) throws IOException {
+        byte[] data = read(headerLength, (int) (channel.size() - headerLength));
+        //the last line ends with a line break, the lines kept start after a line break before it
+        int start = 0;
+        int lines = data.length > 0 ? 1 : 0;
+        for(int i = data.length - 2; i >= 0; i--) {
+            if(data[i] == '\n') {
+                if(lines == maxLines) {
+                    start = i + 1;
+                    break;
+                }
+                lines++;
+            }
+        }
+        long newGeneration = Math.max(generation, readGeneration()) + 1;
+        write(header(newGeneration), 0);
+        write(Arrays.copyOfRange(data, start, data.length), headerLength);
+        channel.truncate(headerLength + data.length - start);
+        channel.force(false);
+        generation = newGeneration;
+        offset = channel.size();
+        return lines;
+    }
+
+    /**
+     * @return true if the line is the header of a shared history file
+     */
+    static boolean isHeader(String line) {
+        return line.startsWith(HEADER);
+    }
+
+    void sync() throws IOException {
+        if(channel != null)
+            channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (jvmLock) {
+            if(channel != null) {
+                try {
+                    channel.force(false);
+                    randomAccessFile.close();
+                }
+                finally {
+                    channel = null;
+                    randomAccessFile = null;
+                }
+            }
+        }
+    }
+
+    private byte[] header(long generation) {
+        //fixed width, so the header of every generation has the same length
+        return (HEADER + String.format("%019d", generation) + Config.getLineSeparator()).getBytes(charset);
+    }
+
+    /**
+     * @return the generation in the header of the file, or -1 if it has no header
+     */
+    private long readGeneration() throws IOException {
+        if(channel.size() < headerLength)
+            return -1;
+        String header = new String(read(0, headerLength), charset).trim();
+        if(!isHeader(header))
+            return -1;
+        try {
+            return Long.parseLong(header.substring(HEADER.length()));
+        }
+        catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Insert a header before the content of the file
+     *
+     * @return the generation of the header
+     */
+    private long addHeader() throws IOException {
+        byte[] content = read(0, (int) channel.size());
+        //a new generation that does not match any generation read before
+        long newGeneration = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE / 2);
+        write(header(newGeneration), 0);
+        write(content, headerLength);
+        channel.force(false);
+        return newGeneration;
+    }
+
+    private byte[] toBytes(int[] entry) {
+        byte[] text = Parser.fromCodePoints(entry).getBytes(charset);
+        byte[] line = Arrays.copyOf(text, text.length + lineSeparator.length);
+        System.arraycopy(lineSeparator, 0, line, text.length, lineSeparator.length);
+        return line;
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                break;
+        }
+        return buffer.array();
+    }
+
+    private void write(byte[] data, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while(buffer.hasRemaining())
+            channel.write(buffer, position + buffer.position());
+    }
+}
@@ -209,6 +209,10 @@ public enum Key implements KeyAction {
     CTRL_UP(new int[] {ESC.getFirstValue(),91,49,59,53,65}),
     CTRL_DOWN(new int[] {ESC.getFirstValue(),91,49,59,53,66}),
 
+    //bracketed paste, sent by the terminal around pasted text
+    BRACKETED_PASTE_START(new int[] {ESC.getFirstValue(),91,50,48,48,126}),
+    BRACKETED_PASTE_END(new int[] {ESC.getFirstValue(),91,50,48,49,126}),
+
     ENTER(Config.isOSPOSIXCompatible() ?
             new int[]{10} : new int[]{13}),
     //needed to support stupid \r\n on windows...
@@ -20,6 +20,7 @@
 package org.aesh.terminal.impl;
 
 import org.aesh.terminal.Attributes;
+import org.aesh.tty.Signal;
 import org.aesh.tty.Size;
 
 import java.io.IOError;
@@ -29,6 +30,11 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
 
     protected final Pty pty;
     protected final Attributes originalAttributes;
+    //reading the size from the pty is expensive (ExecPty forks stty),
+    //so it is cached until the terminal is resized
+    private volatile boolean cacheSize;
+    private volatile Size size;
+    private volatile int resizeCount;
 
     public AbstractPosixTerminal(String name, String type, Pty pty) throws IOException {
         super(name, type);
@@ -58,11 +64,39 @@ public abstract class AbstractPosixTerminal extends AbstractTerminal {
     }
 
     public Size getSize() {
-        try {
-            return pty.getSize();
-        } catch (IOException e) {
-            throw new IOError(e);
+        Size current = size;
+        if (current == null) {
+            int count = resizeCount;
+            try {
+                current = pty.getSize();
+            } catch (IOException e) {
+                throw new IOError(e);
+            }
+            //do not cache the size if the terminal was resized while reading it
+            if (cacheSize && count == resizeCount)
+                size = current;
+        }
+        return current;
+    }
+
+    /**
+     * The size should only be cached if the terminal receive
+     * {@link Signal#WINCH} when it is resized.
+     *
+     * @param cacheSize cache the terminal size
+     */
+    protected void setCacheSize(boolean cacheSize) {
+        this.cacheSize = cacheSize;
+        size = null;
+    }
+
+    @Override
+    public void raise(Signal signal) {
+        if (signal == Signal.WINCH) {
+            resizeCount++;
+            size = null;
         }
+        super.raise(signal);
     }
 
     public void close() throws IOException {
@@ -45,6 +45,9 @@ public class ExecPty implements Pty {
     private static final Logger LOGGER = LoggerUtil.getLogger(ExecPty.class.getName());
 
     private final String name;
+    //last known attributes, every stty call forks a process so we only
+    //read them when needed and only send the changed flags to stty
+    private Attributes attributes;
 
     public static Pty current() throws IOException {
         try {
@@ -96,28 +99,52 @@ public class ExecPty implements Pty {
     }
 
     @Override
-    public Attributes getAttr() throws IOException {
-        try {
-            String cfg = doGetConfig();
-            if (OSUtils.IS_HPUX) {
-                //TODO: need to parse output from ttytype -s
-                return null;
-            } else
-                return doGetAttr(cfg);
-        }
-        catch(IOException ioe) {
-            //if we get permission denied on stty -F tty -a we can try without -F tty
-            if(ioe.getMessage().contains("Permission denied")) {
-               return doGetAttr(doGetFailSafeConfig());
+    public synchronized Attributes getAttr() throws IOException {
+        if (attributes == null) {
+            try {
+                String cfg = doGetConfig();
+                if (OSUtils.IS_HPUX) {
+                    //TODO: need to parse output from ttytype -s
+                    return null;
+                } else
+                    attributes = doGetAttr(cfg);
+            }
+            catch(IOException ioe) {
+                //if we get permission denied on stty -F tty -a we can try without -F tty
+                if(ioe.getMessage().contains("Permission denied")) {
+                    attributes = doGetAttr(doGetFailSafeConfig());
+                }
+                else
+                    throw ioe;
             }
-            else
-                throw ioe;
         }
+        return new Attributes(attributes);
     }
 
     @Override
-    public void setAttr(Attributes attr) throws IOException {
+    public synchronized void setAttr(Attributes attr) throws IOException {
         Attributes current = getAttr();
+        List<String> commands = doGetSetAttrCommands(current, attr);
+        if (!commands.isEmpty()) {
+            commands.add(0, OSUtils.STTY_COMMAND);
+            commands.add(1, OSUtils.STTY_F_OPTION);
+            commands.add(2, getName());
+            try {
+                exec(commands.toArray(new String[commands.size()]));
+            }
+            catch (IOException e) {
+                //we do not know what stty managed to set
+                attributes = null;
+                throw e;
+            }
+        }
+        attributes = new Attributes(attr);
+    }
+
+    /**
+     * @return the stty arguments needed to change the current attributes to attr
+     */
+    static List<String> doGetSetAttrCommands(Attributes current, Attributes attr) {
         List<String> commands = new ArrayList<>();
         for (Attributes.InputFlag flag : Attributes.InputFlag.values()) {
             if (attr.getInputFlag(flag) != current.getInputFlag(flag)) {
@@ -165,17 +192,15 @@ public class ExecPty implements Pty {
                 }
             }
         }
-        if (!commands.isEmpty()) {
-            commands.add(0, OSUtils.STTY_COMMAND);
-            commands.add(1, OSUtils.STTY_F_OPTION);
-            commands.add(2, getName());
-            exec(commands.toArray(new String[commands.size()]));
-        }
+        return commands;
     }
 
     @Override
-    public Size getSize() throws IOException {
+    public synchronized Size getSize() throws IOException {
         String cfg = doGetConfig();
+        //refresh the attributes from the same stty output
+        if (!OSUtils.IS_HPUX)
+            attributes = doGetAttr(cfg);
         return doGetSize(cfg);
     }
 
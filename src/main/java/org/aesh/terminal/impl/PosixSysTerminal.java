@@ -50,6 +50,8 @@ public class PosixSysTerminal extends AbstractPosixTerminal {
             for (final Signal signal : Signal.values()) {
                 nativeHandlers.put(signal, Signals.register(signal.name(), () -> raise(signal)));
             }
+            //we will be notified when the terminal is resized
+            setCacheSize(true);
         }
         closer = PosixSysTerminal.this::close;
         ShutdownHooks.add(closer);
@@ -24,9 +24,12 @@ import org.aesh.tty.Capability;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,6 +41,7 @@ import java.util.regex.Pattern;
 public final class InfoCmp {
 
     private static final Map<String, String> CAPS = new HashMap<>();
+    private static final Map<String, Map<Capability, String>> DEFAULT_STRINGS = new ConcurrentHashMap<>();
 
     private InfoCmp() {
     }
@@ -66,6 +70,27 @@ public final class InfoCmp {
             return readDefaultInfoCmp("ansi_caps.src");
     }
 
+    /**
+     * Look up a string capability in the capabilities bundled for the terminal type,
+     * see {@link #getDefaultInfoCmp(String)}. No infocmp process is started, so it can
+     * be used for the terminal of a remote connection.
+     *
+     * @param terminal terminal type
+     * @param capability capability
+     * @return the capability, or null if the terminal type is unknown, dumb or does not have it
+     */
+    public static String getDefaultStringCapability(String terminal, Capability capability) {
+        if(terminal == null || terminal.isEmpty() || terminal.equalsIgnoreCase("dumb"))
+            return null;
+        return DEFAULT_STRINGS.computeIfAbsent(terminal, type -> {
+            Map<Capability, String> strings = new EnumMap<>(Capability.class);
+            String caps = getDefaultInfoCmp(type);
+            if(caps != null)
+                parseInfoCmp(caps, new HashSet<>(), new HashMap<>(), strings);
+            return strings;
+        }).get(capability);
+    }
+
     private static String readDefaultInfoCmp(String filename) {
         ByteArrayOutputStream res = new ByteArrayOutputStream();
         try (InputStream in = InfoCmp.class.getResourceAsStream(filename)) {
@@ -19,6 +19,8 @@
  */
 package org.aesh.tty;
 
+import org.aesh.terminal.utils.InfoCmp;
+
 import java.util.function.Consumer;
 
 /**
@@ -133,6 +135,31 @@ public interface Connection {
      */
     boolean put(Capability capability, Object... params);
 
+    /**
+     * By default the capability is looked up in the capabilities bundled for
+     * the {@link #terminalType()}, eg for the terminal of a remote connection.
+     *
+     * @param capability capability
+     * @return the string capability of the terminal, null if it is not supported or not known
+     */
+    default String getStringCapability(Capability capability) {
+        return InfoCmp.getDefaultStringCapability(terminalType(), capability);
+    }
+
+    /**
+     * Buffer all output written to the output handler until {@link #flush()} is called.
+     * Used to write all the output produced while processing a batch of input at once.
+     * Connections that do not support buffering write the output directly.
+     */
+    default void startBuffering() {
+    }
+
+    /**
+     * Write out any buffered output and stop buffering.
+     */
+    default void flush() {
+    }
+
     /**
      * Write a string to the output handler
      * @param s string
@@ -30,6 +30,7 @@ import org.aesh.tty.Signal;
 import org.aesh.tty.Size;
 import org.aesh.util.LoggerUtil;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -61,6 +62,12 @@ public class TerminalConnection implements Connection {
     private Consumer<Void> closeHandler;
     private CountDownLatch latch;
     private volatile boolean waiting = false;
+    //output is buffered while we process a batch of input, see startBuffering()
+    private final Object outputLock = new Object();
+    private final ByteArrayOutputStream outputBuffer = new ByteArrayOutputStream(1024);
+    private boolean buffering = false;
+    //write out the buffer before it grows too large
+    private static final int MAX_BUFFERED_OUTPUT = 16 * 1024;
 
     public TerminalConnection(InputStream inputStream, OutputStream outputStream) throws IOException {
             init(TerminalBuilder.builder()
@@ -124,6 +131,11 @@ public class TerminalConnection implements Connection {
         return terminal.puts(capability, params);
     }
 
+    @Override
+    public String getStringCapability(Capability capability) {
+        return terminal.getStringCapability(capability);
+    }
+
     /**
      * Opens the Connection stream, this method will block and wait for input.
      */
@@ -168,11 +180,50 @@ public class TerminalConnection implements Connection {
     }
 
     private void write(byte[] data) {
-        try {
-            terminal.output().write(data);
+        synchronized (outputLock) {
+            try {
+                if (buffering) {
+                    outputBuffer.write(data, 0, data.length);
+                    if (outputBuffer.size() >= MAX_BUFFERED_OUTPUT)
+                        writeBuffer();
+                }
+                else
+                    terminal.output().write(data);
+            }
+            catch(IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write out.",e);
+            }
         }
-        catch(IOException e) {
-            LOGGER.log(Level.WARNING, "Failed to write out.",e);
+    }
+
+    private void writeBuffer() throws IOException {
+        if (outputBuffer.size() > 0) {
+            try {
+                outputBuffer.writeTo(terminal.output());
+            }
+            finally {
+                outputBuffer.reset();
+            }
+        }
+    }
+
+    @Override
+    public void startBuffering() {
+        synchronized (outputLock) {
+            buffering = true;
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (outputLock) {
+            buffering = false;
+            try {
+                writeBuffer();
+            }
+            catch(IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write out.",e);
+            }
         }
     }
 
@@ -257,6 +308,7 @@ public class TerminalConnection implements Connection {
 
     @Override
     public void close() {
+        flush();
         try {
             close = reading = false;
             if(waiting)
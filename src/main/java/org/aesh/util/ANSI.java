@@ -82,6 +82,8 @@ public class ANSI {
             InfoCmpHelper.getCurrentTranslatedCapability("rc","\u001B[u");
     public static final String CURSOR_HIDE = "\u001B[?25l";
     public static final String CURSOR_SHOW = "\u001B[?25h";
+    public static final String BRACKETED_PASTE_ON = "\u001B[?2004h";
+    public static final String BRACKETED_PASTE_OFF = "\u001B[?2004l";
     public static final int[] ERASE_LINE_FROM_CURSOR = new int[]{ 27, '[', 'K'};
     public static final int[] MOVE_LINE_UP = new int[]{ 27, '[', '1', 'A'};
     public static final int[] MOVE_LINE_DOWN = new int[]{ 27, '[', '1', 'B'};
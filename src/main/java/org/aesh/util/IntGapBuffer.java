@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array with a gap at the last edit position.
+ * Inserting and deleting at the same position, eg at the cursor, only moves
+ * the gap and is O(1) amortized. Moving the gap costs the distance moved.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class IntGapBuffer {
+
+    private final int initialCapacity;
+    private int[] data;
+    //data[gapStart, gapEnd) is unused
+    private int gapStart;
+    private int gapEnd;
+
+    public IntGapBuffer() {
+        this(16);
+    }
+
+    public IntGapBuffer(int initialCapacity) {
+        this.initialCapacity = Math.max(1, initialCapacity);
+        data = new int[this.initialCapacity];
+        gapEnd = data.length;
+    }
+
+    public IntGapBuffer(IntGapBuffer buffer) {
+        initialCapacity = buffer.initialCapacity;
+        data = buffer.data.clone();
+        gapStart = buffer.gapStart;
+        gapEnd = buffer.gapEnd;
+    }
+
+    public int size() {
+        return data.length - (gapEnd - gapStart);
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return index < gapStart ? data[index] : data[index + gapEnd - gapStart];
+    }
+
+    public void set(int index, int value) {
+        checkIndex(index);
+        if(index < gapStart)
+            data[index] = value;
+        else
+            data[index + gapEnd - gapStart] = value;
+    }
+
+    public void insert(int index, int value) {
+        prepareInsert(index, 1);
+        data[gapStart++] = value;
+    }
+
+    public void insert(int index, int[] values) {
+        prepareInsert(index, values.length);
+        System.arraycopy(values, 0, data, gapStart, values.length);
+        gapStart += values.length;
+    }
+
+    /**
+     * Delete the values in [from, to)
+     *
+     * @param from start index, inclusive
+     * @param to end index, exclusive
+     */
+    public void delete(int from, int to) {
+        if(from < 0 || to > size() || from > to)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+        moveGap(from);
+        gapEnd += to - from;
+    }
+
+    public void clear() {
+        //release the memory used by a very large line
+        if(data.length > initialCapacity * 4)
+            data = new int[initialCapacity];
+        gapStart = 0;
+        gapEnd = data.length;
+    }
+
+    public int[] toArray() {
+        return toArray(0, size());
+    }
+
+    /**
+     * @param from start index, inclusive
+     * @param to end index, exclusive
+     * @return a copy of the values in [from, to)
+     */
+    public int[] toArray(int from, int to) {
+        int[] out = new int[to - from];
+        copyTo(from, to, out, 0);
+        return out;
+    }
+
+    /**
+     * Copy the values in [from, to) to the given array
+     */
+    public void copyTo(int from, int to, int[] dest, int destPos) {
+        if(from < 0 || to > size() || from > to)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size());
+        if(to <= gapStart)
+            System.arraycopy(data, from, dest, destPos, to - from);
+        else if(from >= gapStart)
+            System.arraycopy(data, from + gapEnd - gapStart, dest, destPos, to - from);
+        else {
+            System.arraycopy(data, from, dest, destPos, gapStart - from);
+            System.arraycopy(data, gapEnd, dest, destPos + gapStart - from, to - gapStart);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+    }
+
+    private void prepareInsert(int index, int length) {
+        if(index < 0 || index > size())
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        moveGap(index);
+        if(gapEnd - gapStart < length)
+            expandCapacity(size() + length);
+    }
+
+    private void moveGap(int index) {
+        if(index < gapStart)
+            System.arraycopy(data, index, data, index + gapEnd - gapStart, gapStart - index);
+        else if(index > gapStart)
+            System.arraycopy(data, gapEnd, data, gapStart, index - gapStart);
+        gapEnd += index - gapStart;
+        gapStart = index;
+    }
+
+    private void expandCapacity(int minimumCapacity) {
+        int newCapacity = data.length * 2 + 2;
+        if (newCapacity - minimumCapacity < 0)
+            newCapacity = minimumCapacity;
+        if (newCapacity < 0) {
+            if (minimumCapacity < 0) // overflow
+                throw new OutOfMemoryError();
+            newCapacity = Integer.MAX_VALUE;
+        }
+        int tail = data.length - gapEnd;
+        int[] newData = Arrays.copyOf(data, newCapacity);
+        System.arraycopy(data, gapEnd, newData, newCapacity - tail, tail);
+        data = newData;
+        gapEnd = newCapacity - tail;
+    }
+}
@@ -315,15 +315,20 @@ public class Parser {
      * @return common start string
      */
     public static String findStartsWithOperation(List<? extends CompleteOperation> coList) {
-        List<String> tmpList = new ArrayList<>();
+        String startsWith = null;
+        int length = 0;
         for (CompleteOperation co : coList) {
-            String s = findStartsWith(co.getFormattedCompletionCandidates());
-            if (s.length() > 0)
-                tmpList.add(s);
-            else
+            String s = co.getFormattedCompletionPrefix();
+            if (s.length() == 0)
                 return "";
+            if (startsWith == null) {
+                startsWith = s;
+                length = s.length();
+            }
+            else
+                length = commonPrefixLength(startsWith, length, s);
         }
-        return findStartsWith(tmpList);
+        return startsWith == null ? "" : startsWith.substring(0, length);
     }
 
     /**
@@ -333,21 +338,19 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWith(List<String> completionList) {
-        StringBuilder builder = new StringBuilder();
-        for (String completion : completionList)
-            while (builder.length() < completion.length() &&
-                    startsWith(completion.substring(0, builder.length() + 1), completionList))
-                builder.append(completion.charAt(builder.length()));
-
-        return builder.toString();
-    }
-
-    private static boolean startsWith(String criteria, List<String> completionList) {
-        for (String completion : completionList)
-            if (!completion.startsWith(criteria))
-                return false;
-
-        return true;
+        String first = null;
+        int length = 0;
+        for (String completion : completionList) {
+            if (first == null) {
+                first = completion;
+                length = completion.length();
+            }
+            else
+                length = commonPrefixLength(first, length, completion);
+            if (length == 0)
+                return "";
+        }
+        return first == null ? "" : first.substring(0, length);
     }
 
     /**
@@ -357,21 +360,33 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWithTerminalString(List<TerminalString> completionList) {
-        StringBuilder builder = new StringBuilder();
-        for (TerminalString completion : completionList)
-            while (builder.length() < completion.getCharacters().length() &&
-                    startsWithTerminalString(completion.getCharacters().substring(0, builder.length() + 1), completionList))
-                builder.append(completion.getCharacters().charAt(builder.length()));
-
-        return builder.toString();
+        String first = null;
+        int length = 0;
+        for (TerminalString completion : completionList) {
+            if (first == null) {
+                first = completion.getCharacters();
+                length = first.length();
+            }
+            else
+                length = commonPrefixLength(first, length, completion.getCharacters());
+            if (length == 0)
+                return "";
+        }
+        return first == null ? "" : first.substring(0, length);
     }
 
-    private static boolean startsWithTerminalString(String criteria, List<TerminalString> completionList) {
-        for (TerminalString completion : completionList)
-            if (!completion.getCharacters().startsWith(criteria))
-                return false;
-
-        return true;
+    /**
+     * @return length of the common prefix of the first length chars of prefix and the string
+     */
+    private static int commonPrefixLength(String prefix, int length, String s) {
+        int max = Math.min(length, s.length());
+        int i = 0;
+        while (i < max && prefix.charAt(i) == s.charAt(i))
+            i++;
+        //do not split a surrogate pair
+        if (i > 0 && i < max && Character.isHighSurrogate(prefix.charAt(i - 1)))
+            i--;
+        return i;
     }
 
     /**
@@ -628,4 +643,13 @@ public class Parser {
         return arrayIndexOf(source, target) > -1;
 
     }
+
+    public static boolean arrayStartsWith(int[] source, int[] prefix) {
+        if(prefix.length > source.length)
+            return false;
+        for(int i = 0; i < prefix.length; i++)
+            if(source[i] != prefix[i])
+                return false;
+        return true;
+    }
 }
@@ -57,4 +57,42 @@ public class DecoderTest {
         assertDecode(Arrays.asList("\u001B["), 27, 91);
     }
 
+
+    @Test
+    public void testMultiByte() throws Exception {
+        // ø, 中, 😀
+        assertDecode(Arrays.asList("\u00F8\u4E2D\uD83D\uDE00"), 0xC3, 0xB8, 0xE4, 0xB8, 0xAD, 0xF0, 0x9F, 0x98, 0x80);
+        //malformed input is replaced
+        assertDecode(Arrays.asList("A\uFFFDB\uFFFD"), 65, 0xC3, 66, 0xFF);
+        assertDecode(Arrays.asList("\uFFFD\uFFFDA"), 0xE0, 0x80, 65);
+    }
+
+    @Test
+    public void testSplitInput() throws Exception {
+        final List<String> result = new ArrayList<>();
+        Decoder decoder = new Decoder(512, Charset.forName("UTF-8"), event -> result.add(new String(event, 0, event.length)));
+        byte[] data = "a\uD83D\uDE00\u00F8".getBytes(Charset.forName("UTF-8"));
+        for (byte b : data)
+            decoder.write(new byte[]{b});
+        assertEquals(Arrays.asList("a", "\uD83D\uDE00", "\u00F8"), result);
+
+        //surrogate pairs split between writes
+        result.clear();
+        decoder = new Decoder(2, Charset.forName("UTF-16BE"), event -> result.add(new String(event, 0, event.length)));
+        data = "\uD83D\uDE00b".getBytes(Charset.forName("UTF-16BE"));
+        decoder.write(data, 0, 3);
+        decoder.write(data, 3, 3);
+        assertEquals(Arrays.asList("\uD83D\uDE00b"), result);
+    }
+
+    @Test
+    public void testLargeInput() throws Exception {
+        final StringBuilder result = new StringBuilder();
+        Decoder decoder = new Decoder(512, Charset.forName("UTF-8"), event -> result.append(new String(event, 0, event.length)));
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            input.append("foo\u00F8\u4E2D");
+        decoder.write(input.toString().getBytes(Charset.forName("UTF-8")));
+        assertEquals(input.toString(), result.toString());
+    }
 }
@@ -19,11 +19,14 @@
  */
 package org.aesh.io;
 
+import org.aesh.util.Parser;
 import org.junit.Test;
 
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -60,4 +63,30 @@ public class EncoderTest {
         decodeEndcode("foo bar!!??", new String[] {"foo ","bar!","!??"});
         decodeEndcode("\r", new String[] {"\r"});
     }
+
+    @Test
+    public void testEncode() {
+        assertEncode("UTF-8", "foo bar");
+        assertEncode("UTF-8", "f\u00F8\u00F8 \u4E2D\uD83D\uDE00 bar");
+        assertEncode("UTF-8", "");
+        assertEncode("ISO-8859-1", "f\u00F8\u00F8 bar");
+        assertEncode("UTF-16", "foo \uD83D\uDE00");
+        //unmappable chars are replaced
+        assertEncode("US-ASCII", "f\u00F8\u00F8");
+        //buffers are reused, make sure nothing is left from a larger input
+        Charset charset = Charset.forName("UTF-8");
+        List<byte[]> result = new ArrayList<>();
+        Encoder encoder = new Encoder(charset, result::add);
+        encoder.accept(Parser.toCodePoints("\u00F8\u00F8\u00F8\u00F8"));
+        encoder.accept(Parser.toCodePoints("\u00F8"));
+        assertArrayEquals("\u00F8".getBytes(charset), result.get(1));
+    }
+
+    private void assertEncode(String charsetName, String input) {
+        Charset charset = Charset.forName(charsetName);
+        List<byte[]> result = new ArrayList<>();
+        Encoder encoder = new Encoder(charset, result::add);
+        encoder.accept(Parser.toCodePoints(input));
+        assertArrayEquals(input.getBytes(charset), result.get(0));
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.aesh.parser;
 
+import org.aesh.readline.completion.CompleteOperation;
+import org.aesh.readline.completion.CompleteOperationImpl;
 import org.aesh.terminal.formatting.TerminalString;
 import org.aesh.util.ANSI;
 import org.aesh.util.Config;
@@ -54,6 +56,42 @@ public class ParserTest {
         completionList.add("foo");
         completionList.add("bar");
         assertEquals("", Parser.findStartsWith(completionList));
+
+        completionList.clear();
+        assertEquals("", Parser.findStartsWith(completionList));
+        completionList.add("foo");
+        assertEquals("foo", Parser.findStartsWith(completionList));
+        //a surrogate pair is not split
+        completionList.clear();
+        completionList.add("a\uD83D\uDE00");
+        completionList.add("a\uD83D\uDE01");
+        assertEquals("a", Parser.findStartsWith(completionList));
+    }
+
+    @Test
+    public void testFindStartsWithOperation() {
+        CompleteOperation first = new CompleteOperationImpl("ls foo", 6);
+        first.addCompletionCandidate("foobar");
+        first.addCompletionCandidate("foobaz");
+        first.setOffset(3);
+        CompleteOperation second = new CompleteOperationImpl("ls foo", 6);
+        second.addCompletionCandidate("foobat");
+        second.setOffset(3);
+        assertEquals("ba", Parser.findStartsWithOperation(Arrays.asList(first, second)));
+
+        //a prefix set by the completion is used
+        first.setCompletionCandidatesPrefix("foob");
+        assertEquals("b", Parser.findStartsWithOperation(Arrays.asList(first, second)));
+        first.addCompletionCandidate("foobax");
+        assertEquals("ba", Parser.findStartsWithOperation(Arrays.asList(first, second)));
+
+        second.addCompletionCandidate("fop");
+        assertEquals("", Parser.findStartsWithOperation(Arrays.asList(first, second)));
+
+        List<TerminalString> terminalStrings = new ArrayList<>();
+        terminalStrings.add(new TerminalString("foobar"));
+        terminalStrings.add(new TerminalString("foo"));
+        assertEquals("foo", Parser.findStartsWithTerminalString(terminalStrings));
     }
 
     @Test
@@ -27,10 +27,12 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -132,7 +134,17 @@ public class BufferTest {
         buffer.move(outConsumer::add, -10, 100);
         outConsumer.clear();
         buffer.insert(outConsumer::add, "1", 100);
-        assertArrayEquals( new int[]{'1','f','o','o',27,'[','3','D'}, outConsumer.get(0));
+        assertArrayEquals( new int[]{27,'[','1','@','1'}, outConsumer.get(0));
+
+        //without ICH the rest of the line is printed again
+        buffer = new Buffer(new Prompt(": "));
+        buffer.setInsertDeleteCharacters(false);
+        outConsumer.clear();
+        buffer.insert(outConsumer::add, "foo", 100);
+        buffer.move(outConsumer::add, -10, 100);
+        outConsumer.clear();
+        buffer.insert(outConsumer::add, "1", 100);
+        assertEquals("1foo", Parser.stripAwayAnsiCodes(Parser.fromCodePoints(outConsumer.get(0))));
 
     }
 
@@ -143,20 +155,23 @@ public class BufferTest {
         buffer.insert(outConsumer::add, "foo bar", 100);
         outConsumer.clear();
         buffer.delete(outConsumer::add, -2, 120);
-        assertArrayEquals(new int[] {27,'[', '9', 'D'}, Arrays.copyOfRange(outConsumer.get(0), 0, 4 ));
-        assertArrayEquals(new int[] {27,'[','K'}, Arrays.copyOfRange(outConsumer.get(0), 4, 7 ));
+        assertArrayEquals(new int[] {27,'[', '2', 'D', 27,'[','K'}, outConsumer.get(0));
         assertEquals("foo b", buffer.asString());
         outConsumer.clear();
         buffer.delete(outConsumer::add, -2, 120);
-        assertArrayEquals(new int[] {27,'[', '7', 'D'}, Arrays.copyOfRange(outConsumer.get(0), 0, 4 ));
-        assertArrayEquals(new int[] {27,'[','K'}, Arrays.copyOfRange(outConsumer.get(0), 4, 7 ));
+        assertArrayEquals(new int[] {27,'[', '2', 'D', 27,'[','K'}, outConsumer.get(0));
         assertEquals("foo", buffer.asString());
         outConsumer.clear();
         buffer.delete(outConsumer::add, -4, 120);
-        assertArrayEquals(new int[] {27,'[', '5', 'D'},
-                Arrays.copyOfRange(outConsumer.get(0), 0, 4 ));
-        assertArrayEquals(new int[] {27,'[','K'}, Arrays.copyOfRange(outConsumer.get(0), 4, 7 ));
+        assertArrayEquals(new int[] {27,'[', '3', 'D', 27,'[','K'}, outConsumer.get(0));
         assertEquals("", buffer.asString());
+        //only the deleted characters are removed from the middle of the line
+        buffer.insert(outConsumer::add, "foo bar", 120);
+        buffer.move(outConsumer::add, -3, 120);
+        outConsumer.clear();
+        buffer.delete(outConsumer::add, -2, 120);
+        assertArrayEquals(new int[] {27,'[', '2', 'D', 27,'[','2','P'}, outConsumer.get(0));
+        assertEquals("fobar", buffer.asString());
     }
 
     @Test
@@ -275,9 +290,7 @@ public class BufferTest {
         buffer.insert(outConsumer::add, "foo bar", 100);
         outConsumer.clear();
         buffer.replace(outConsumer::add, " gar", 120);
-        assertEquals(" gar",
-        Parser.fromCodePoints(Arrays.copyOfRange(outConsumer.get(0),
-                outConsumer.get(0).length-4, outConsumer.get(0).length )));
+        assertEquals(" gar", Parser.stripAwayAnsiCodes(Parser.fromCodePoints(outConsumer.get(0))));
         outConsumer.clear();
         buffer.insert(outConsumer::add, 'd', 100);
         assertEquals(" gard", buffer.asString());
@@ -344,7 +357,7 @@ public class BufferTest {
         buffer.insert(outConsumer::add, "1234567890", 100);
         outConsumer.clear();
         buffer.move(outConsumer::add, -10, 5);
-        assertArrayEquals(new int[] {27,'[','2','A',27,'[','0','D'}, outConsumer.get(0));
+        assertArrayEquals(new int[] {27,'[','2','A'}, outConsumer.get(0));
 
         buffer.insert(outConsumer::add, ' ', 100);
         outConsumer.clear();
@@ -352,7 +365,7 @@ public class BufferTest {
         assertEquals(" 1234567890", buffer.asString());
         outConsumer.clear();
         buffer.move(outConsumer::add, 5, 5);
-        assertArrayEquals(new int[] {27,'[','1','B',27,'[','0','D'}, outConsumer.get(0));
+        assertArrayEquals(new int[] {27,'[','1','B'}, outConsumer.get(0));
         buffer.insert(outConsumer::add, ' ', 100);
         outConsumer.clear();
         buffer.print(outConsumer::add, 5);
@@ -376,20 +389,180 @@ public class BufferTest {
         buffer.insert(outConsumer::add, "1234567890", 100);
         outConsumer.clear();
         buffer.replace(outConsumer::add, "foo", 5);
-        Assert.assertArrayEquals(ANSI.ERASE_WHOLE_LINE,
+        //move to the start of the line, print it and erase the rows below
+        assertArrayEquals(new int[]{27,'[', '2','A'},
                 Arrays.copyOfRange(outConsumer.get(0), 0, 4));
-        assertArrayEquals(ANSI.MOVE_LINE_UP,
-                Arrays.copyOfRange(outConsumer.get(0), 4, 8));
+        assertEquals("foo", Parser.fromCodePoints(Arrays.copyOfRange(outConsumer.get(0), 4, 7)));
         assertArrayEquals(ANSI.ERASE_WHOLE_LINE,
-                Arrays.copyOfRange(outConsumer.get(0), 8, 12));
-        assertArrayEquals(ANSI.MOVE_LINE_UP,
-                Arrays.copyOfRange(outConsumer.get(0), 12, 16));
-        assertArrayEquals(new int[]{27,'[', '5','D'},
-                Arrays.copyOfRange(outConsumer.get(0), 16, 20));
+                Arrays.copyOfRange(outConsumer.get(0), outConsumer.get(0).length - 8, outConsumer.get(0).length - 4));
 
         assertEquals("foo", buffer.asString());
     }
 
+    @Test
+    public void printChangesOnScreen() {
+        printChangesOnScreen(true);
+    }
+
+    @Test
+    public void printChangesOnScreenWithoutInsertDelete() {
+        printChangesOnScreen(false);
+    }
+
+    private void printChangesOnScreen(boolean insertDeleteCharacters) {
+        Random random = new Random(42);
+        for(int width : new int[] {5, 7, 13, 80}) {
+            Buffer buffer = new Buffer(new Prompt(": "));
+            buffer.setInsertDeleteCharacters(insertDeleteCharacters);
+            Screen screen = new Screen(width, insertDeleteCharacters);
+            StringBuilder expected = new StringBuilder();
+            buffer.print(screen::write, width);
+            for(int i = 0; i < 2000; i++) {
+                int operation = random.nextInt(6);
+                if(operation == 0 || operation == 1) {
+                    String text = randomText(random, 1 + random.nextInt(operation == 0 ? 2 : 12));
+                    expected.insert(buffer.cursor(), text);
+                    buffer.insert(screen::write, text, width);
+                }
+                else if(operation == 2) {
+                    int delta = random.nextInt(7) - 3;
+                    int start = Math.max(0, Math.min(buffer.cursor(), buffer.cursor() + delta));
+                    int end = Math.min(expected.length(), Math.max(buffer.cursor(), buffer.cursor() + delta));
+                    expected.delete(start, end);
+                    buffer.delete(screen::write, delta, width);
+                }
+                else if(operation == 3) {
+                    String text = randomText(random, random.nextInt(3 * width));
+                    if(random.nextBoolean() && expected.length() > 2)
+                        text = expected.substring(0, expected.length() / 2) + text;
+                    if(text.length() > 0 || expected.length() > 0) {
+                        expected.setLength(0);
+                        expected.append(text);
+                    }
+                    buffer.replace(screen::write, text, width);
+                }
+                else
+                    buffer.move(screen::write, random.nextInt(2 * width) - width, width);
+
+                assertEquals(expected.toString(), buffer.asString());
+                screen.assertLine(": " + expected, 2 + buffer.cursor());
+                if(expected.length() > 300) {
+                    buffer.replace(screen::write, "", width);
+                    expected.setLength(0);
+                }
+            }
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++)
+            builder.append((char) ('a' + random.nextInt(4)));
+        return builder.toString();
+    }
+
+    /**
+     * Minimal terminal that understands the sequences Buffer writes.
+     */
+    private static class Screen {
+        private final int width;
+        private final boolean insertDeleteCharacters;
+        private final List<char[]> rows = new ArrayList<>();
+        private int row;
+        private int column;
+        private boolean pendingWrap;
+
+        Screen(int width, boolean insertDeleteCharacters) {
+            this.width = width;
+            this.insertDeleteCharacters = insertDeleteCharacters;
+        }
+
+        void write(int[] data) {
+            for(int i = 0; i < data.length; i++) {
+                if(data[i] == 27) {
+                    int number = 0;
+                    boolean hasNumber = false;
+                    i += 2;
+                    while(Character.isDigit(data[i])) {
+                        number = number * 10 + data[i++] - '0';
+                        hasNumber = true;
+                    }
+                    execute((char) data[i], hasNumber ? number : -1);
+                }
+                else if(data[i] == '\r') {
+                    column = 0;
+                    pendingWrap = false;
+                }
+                else {
+                    if(pendingWrap) {
+                        row++;
+                        column = 0;
+                        pendingWrap = false;
+                    }
+                    row(row)[column] = (char) data[i];
+                    if(column == width - 1)
+                        pendingWrap = true;
+                    else
+                        column++;
+                }
+            }
+        }
+
+        private void execute(char command, int number) {
+            int n = Math.max(1, number);
+            char[] current = row(row);
+            pendingWrap = false;
+            if(!insertDeleteCharacters && (command == '@' || command == 'P'))
+                fail("unsupported sequence: " + command);
+            switch(command) {
+                case 'A': row = Math.max(0, row - n); break;
+                case 'B': row += n; break;
+                case 'C': column = Math.min(width - 1, column + n); break;
+                case 'D': column = Math.max(0, column - n); break;
+                case 'G': column = 0; break;
+                case 'K':
+                    if(number == 2)
+                        Arrays.fill(current, ' ');
+                    else
+                        Arrays.fill(current, column, width, ' ');
+                    break;
+                case '@':
+                    n = Math.min(n, width - column);
+                    System.arraycopy(current, column, current, column + n, width - column - n);
+                    Arrays.fill(current, column, column + n, ' ');
+                    break;
+                case 'P':
+                    n = Math.min(n, width - column);
+                    System.arraycopy(current, column + n, current, column, width - column - n);
+                    Arrays.fill(current, width - n, width, ' ');
+                    break;
+                default:
+                    //ignore everything else, eg colors
+            }
+        }
+
+        private char[] row(int index) {
+            while(rows.size() <= index) {
+                char[] empty = new char[width];
+                Arrays.fill(empty, ' ');
+                rows.add(empty);
+            }
+            return rows.get(index);
+        }
+
+        void assertLine(String line, int cursor) {
+            for(int i = 0; i < Math.max(rows.size(), line.length() / width + 1); i++) {
+                char[] expected = new char[width];
+                Arrays.fill(expected, ' ');
+                for(int j = 0; j < width && i * width + j < line.length(); j++)
+                    expected[j] = line.charAt(i * width + j);
+                assertEquals("row " + i, new String(expected), new String(row(i)));
+            }
+            assertEquals("cursor row", cursor / width, row);
+            assertEquals("cursor column", cursor % width, column);
+        }
+    }
+
     @Test
     public void disablePrompt() {
         Buffer buffer = new Buffer(new Prompt(": "));
@@ -20,13 +20,25 @@
 package org.aesh.readline;
 
 import org.aesh.readline.completion.Completion;
+import org.aesh.readline.completion.SimpleCompletionHandler;
+import org.aesh.readline.editing.EditModeBuilder;
 import org.aesh.terminal.Key;
+import org.aesh.tty.Size;
 import org.aesh.tty.TestConnection;
 import org.aesh.util.Config;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href=mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -75,4 +87,199 @@ public class CompletionReadlineTest {
         term.assertLine("less:");
 
     }
+
+    @Test
+    public void testAsyncCompletionTimeout() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch slow = new CountDownLatch(1);
+        try {
+            List<Completion> completions = new ArrayList<>();
+            completions.add(co -> {
+                if(co.getBuffer().equals("foo"))
+                    co.addCompletionCandidate("foobar");
+            });
+            completions.add(co -> {
+                try {
+                    slow.await();
+                }
+                catch(InterruptedException ignored) {
+                }
+                co.addCompletionCandidate("foo-slow");
+            });
+
+            SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+            completionHandler.setCompletionExecutor(executor);
+            completionHandler.setCompletionTimeout(100);
+            TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+            TestConnection term = new TestConnection(readline, null, null, null, null);
+            term.readline(completions);
+
+            term.read("foo".getBytes());
+            term.read(Key.CTRL_I);
+            //the slow completion is ignored when the timeout expires
+            waitForBuffer(readline, "foobar ");
+            term.read(Config.getLineSeparator());
+            term.assertLine("foobar ");
+        }
+        finally {
+            slow.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncCompletionCancelledByInput() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch slow = new CountDownLatch(1);
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            try {
+                slow.await();
+            }
+            catch(InterruptedException ignored) {
+            }
+            co.addCompletionCandidate("foobar");
+        });
+
+        SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+        completionHandler.setCompletionExecutor(executor);
+        TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+        TestConnection term = new TestConnection(readline, null, null, null, null);
+        term.readline(completions);
+
+        term.read("foo".getBytes());
+        term.read(Key.CTRL_I);
+        //input is processed while the completion is running
+        term.read("x");
+        assertEquals("foox", readline.getBuffer());
+        slow.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        //the stale completion is not used
+        term.read(Config.getLineSeparator());
+        term.assertLine("foox");
+    }
+
+    @Test
+    public void testParallelCompletion() throws Exception {
+        //both completions have to run at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            await(barrier);
+            if("foobar2".startsWith(co.getBuffer()))
+                co.addCompletionCandidate("foobar2");
+            co.setOffset(0);
+        });
+        completions.add(co -> {
+            await(barrier);
+            if("foobar1".startsWith(co.getBuffer()))
+                co.addCompletionCandidate("foobar1");
+            co.setOffset(0);
+            co.setSeparator('-');
+        });
+
+        SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+        completionHandler.setParallelCompletion(true);
+        TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+        TestConnection term = new TestConnection(readline, null, null, null, null);
+        term.readline(completions);
+
+        term.read("foo".getBytes());
+        term.read(Key.CTRL_I);
+        assertEquals("foobar", readline.getBuffer());
+        term.read("1".getBytes());
+        term.read(Key.CTRL_I);
+        //only the second completion matches, its separator is used
+        assertEquals("foobar1-", readline.getBuffer());
+        term.read(Config.getLineSeparator());
+        term.assertLine("foobar1-");
+    }
+
+    @Test
+    public void testCompletionPaging() {
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            for(int i = 69; i >= 10; i--)
+                if(("foo" + i).startsWith(co.getBuffer()))
+                    co.addCompletionCandidate("foo" + i);
+        });
+
+        SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+        completionHandler.setCompletionPaging(true);
+        TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+        //11 candidates per row and 3 rows per page
+        TestConnection term = new TestConnection(readline, null, null, new Size(80, 4), null);
+        term.readline(completions);
+
+        term.read("foo".getBytes());
+        term.clearOutputBuffer();
+        term.read(Key.CTRL_I);
+        String output = term.getOutputBuffer();
+        assertTrue(output, output.contains("foo10") && output.contains("foo42"));
+        assertFalse(output, output.contains("foo43"));
+        assertTrue(output, output.endsWith("--More--"));
+
+        //enter displays the next row
+        term.clearOutputBuffer();
+        term.read(Key.ENTER);
+        output = term.getOutputBuffer();
+        assertTrue(output, output.contains("foo43") && output.contains("foo53"));
+        assertFalse(output, output.contains("foo54"));
+        assertEquals("foo", readline.getBuffer());
+
+        //space displays the next page, the last candidates fit on it
+        term.clearOutputBuffer();
+        term.read(Key.SPACE);
+        output = term.getOutputBuffer();
+        assertTrue(output, output.contains("foo54") && output.contains("foo69"));
+        assertFalse(output, output.contains("--More--"));
+
+        term.read("1".getBytes());
+        term.read(Key.CTRL_I);
+        assertEquals("foo1", readline.getBuffer());
+        term.read(Config.getLineSeparator());
+        term.assertLine("foo1");
+    }
+
+    @Test
+    public void testCompletionPagingAbort() {
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            for(int i = 10; i < 70; i++)
+                co.addCompletionCandidate("foo" + i);
+        });
+
+        SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+        completionHandler.setCompletionPaging(true);
+        TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+        TestConnection term = new TestConnection(readline, null, null, new Size(80, 4), null);
+        term.readline(completions);
+
+        term.read("foo".getBytes());
+        term.read(Key.CTRL_I);
+        term.clearOutputBuffer();
+        term.read(Key.q);
+        assertFalse(term.getOutputBuffer().contains("foo43"));
+        //the key that stopped the paging is not added to the line
+        term.read("x");
+        term.read(Config.getLineSeparator());
+        term.assertLine("foox");
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        }
+        catch(Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitForBuffer(TestReadline readline, String expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while(!expected.equals(readline.getBuffer()) && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals(expected, readline.getBuffer());
+    }
 }
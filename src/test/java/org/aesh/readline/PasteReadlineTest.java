@@ -19,6 +19,7 @@
  */
 package org.aesh.readline;
 
+import org.aesh.terminal.Key;
 import org.aesh.tty.TestConnection;
 import org.aesh.util.Config;
 import org.junit.Test;
@@ -47,4 +48,76 @@ public class PasteReadlineTest {
         connection.read("234"+ Config.getLineSeparator());
         connection.assertLine("admin!234");
     }
+
+    @Test
+    public void pasteLargeInput() throws Exception {
+        TestConnection connection = new TestConnection();
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 25000; i++)
+            builder.append("foo").append(i % 10);
+        connection.read(builder.toString());
+        connection.assertBuffer(builder.toString());
+        connection.read(Config.getLineSeparator());
+        connection.assertLine(builder.toString());
+    }
+
+    @Test
+    public void bracketedPaste() throws Exception {
+        TestConnection connection = new TestConnection();
+        connection.read("ls ");
+        //tab and escape sequences are not handled as actions in a bracketed paste,
+        //a tab is expanded to the next tab stop
+        connection.read(Key.BRACKETED_PASTE_START);
+        connection.read("foo\t\u001B[Dbar\tx");
+        connection.read(Key.BRACKETED_PASTE_END);
+        connection.assertBuffer("ls foo  [Dbar   x");
+        connection.read(Key.LEFT);
+        connection.read("X");
+        connection.assertBuffer("ls foo  [Dbar   Xx");
+        connection.read(Config.getLineSeparator());
+        connection.assertLine("ls foo  [Dbar   Xx");
+    }
+
+    @Test
+    public void bracketedPasteLostEndMarker() throws Exception {
+        TestConnection connection = new TestConnection();
+        connection.read(Key.BRACKETED_PASTE_START);
+        connection.read("foo" + Config.getLineSeparator());
+        connection.assertLine("foo");
+        //the next line is not in a paste, keys are handled as actions
+        connection.readline();
+        connection.read("ab");
+        connection.read(Key.LEFT);
+        connection.read("X");
+        connection.assertBuffer("aXb");
+        connection.read(Config.getLineSeparator());
+        connection.assertLine("aXb");
+    }
+
+    @Test
+    public void bracketedPasteSplitMarkers() throws Exception {
+        TestConnection connection = new TestConnection();
+        connection.read("ls ");
+        connection.read("\u001B[20");
+        connection.read("0~foo\u001B[20");
+        connection.read("1~");
+        connection.assertBuffer("ls foo");
+        //the paste has ended, keys are handled as actions again
+        connection.read(Key.LEFT);
+        connection.read("X");
+        connection.assertBuffer("ls foXo");
+        connection.read(Config.getLineSeparator());
+        connection.assertLine("ls foXo");
+    }
+
+    @Test
+    public void bracketedPasteWithNewLines() throws Exception {
+        TestConnection connection = new TestConnection();
+        connection.read(Key.BRACKETED_PASTE_START);
+        connection.read("connect" + Config.getLineSeparator() + "admin");
+        connection.assertLine("connect");
+        connection.readline();
+        connection.read(Key.BRACKETED_PASTE_END);
+        connection.assertBuffer("admin");
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.editing.EditModeBuilder;
+import org.aesh.terminal.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ActionDecoderTest {
+
+    @Test
+    public void testTrie() {
+        KeyActionTrie trie = new KeyActionTrie(new KeyAction[]{Key.ESC, Key.UP, Key.a});
+
+        assertEquals(Key.UP, trie.findLongestMatch(new int[]{27, 91, 65, 97}, 0, 4));
+        assertEquals(Key.ESC, trie.findLongestMatch(new int[]{27, 91}, 0, 2));
+        assertEquals(Key.a, trie.findLongestMatch(new int[]{27, 97}, 1, 1));
+        assertNull(trie.findLongestMatch(new int[]{98}, 0, 1));
+
+        assertTrue(trie.isPrefix(new int[]{27, 91}, 0, 2));
+        assertFalse(trie.isPrefix(new int[]{27, 91, 65}, 0, 3));
+        assertFalse(trie.isPrefix(new int[]{98}, 0, 1));
+    }
+
+    @Test
+    public void testDecode() {
+        ActionDecoder decoder = new ActionDecoder();
+        decoder.add(new int[]{27, 91, 65, 27, 91, 66, 'a', 1});
+        assertEquals(Key.UP, decoder.next());
+        assertEquals(Key.DOWN, decoder.next());
+        assertEquals(Key.a, decoder.next());
+        assertEquals(Key.CTRL_A, decoder.next());
+        assertFalse(decoder.hasNext());
+
+        //unknown code points are returned one by one
+        decoder.add(new int[]{0x1F600, 'b'});
+        assertEquals(0x1F600, decoder.next().getCodePointAt(0));
+        assertEquals(Key.b, decoder.next());
+    }
+
+    @Test
+    public void testDecodePartialSequence() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        editMode.addAction(new int[]{24, 21}, "undo");
+        ActionDecoder decoder = new ActionDecoder(editMode);
+        decoder.add(24);
+        //ctrl-x is only the start of the ctrl-x ctrl-u binding
+        assertFalse(decoder.hasNext());
+        decoder.add(21);
+        assertEquals(2, decoder.next().length());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testBindingChanges() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        ActionDecoder decoder = new ActionDecoder(editMode);
+        decoder.add(new int[]{24, 24, 24, 24, 24, 24, 24});
+        assertEquals(1, decoder.next().length());
+
+        editMode.addAction(new int[]{24, 24, 24}, "beginning-of-line");
+        assertEquals(3, decoder.next().length());
+        assertEquals("beginning-of-line", editMode.parse(decoder.next()).name());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testLargeInput() {
+        ActionDecoder decoder = new ActionDecoder();
+        for (int round = 0; round < 3; round++) {
+            //partly consume the input so the ring buffer wraps around
+            for (int i = 0; i < 50; i++)
+                decoder.add(new int[]{'a', 27, 91, 65});
+            for (int i = 0; i < 30; i++) {
+                assertEquals(Key.a, decoder.next());
+                assertEquals(Key.UP, decoder.next());
+            }
+            assertEquals(80, decoder.available());
+            int[] paste = new int[10000];
+            for (int i = 0; i < paste.length; i++)
+                paste[i] = 'b';
+            decoder.add(paste, 0, paste.length);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(Key.a, decoder.next());
+                assertEquals(Key.UP, decoder.next());
+            }
+            for (int i = 0; i < paste.length; i++)
+                assertEquals(Key.b, decoder.next());
+            assertFalse(decoder.hasNext());
+            assertEquals(0, decoder.available());
+        }
+    }
+}
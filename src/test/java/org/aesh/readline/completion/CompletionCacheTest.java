@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CompletionCacheTest {
+
+    private static final List<String> WORDS = Arrays.asList("foo", "foobar", "foobaz", "fuzz");
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    //completes the last word of the buffer
+    private final Completion completion = co -> {
+        calls.incrementAndGet();
+        int start = co.getBuffer().lastIndexOf(' ', co.getCursor() - 1) + 1;
+        String word = co.getBuffer().substring(start, co.getCursor());
+        for(String w : WORDS)
+            if(w.startsWith(word))
+                co.addCompletionCandidate(w);
+        co.setOffset(start);
+    };
+
+    private CompleteOperation complete(CompletionCache cache, String buffer) {
+        CompleteOperation co = new CompleteOperationImpl(buffer, buffer.length());
+        cache.complete(completion, co);
+        return co;
+    }
+
+    @Test
+    public void testNarrowing() {
+        CompletionCache cache = new CompletionCache(10, 0, TimeUnit.MILLISECONDS);
+        assertEquals(4, complete(cache, "ls f").getCompletionCandidates().size());
+        assertEquals(1, calls.get());
+
+        CompleteOperation co = complete(cache, "ls foob");
+        assertEquals(1, calls.get());
+        assertEquals(2, co.getCompletionCandidates().size());
+        assertEquals(3, co.getOffset());
+        assertEquals(Arrays.asList("ar", "az"), co.getFormattedCompletionCandidates());
+
+        //the same line is not completed again
+        complete(cache, "ls foob");
+        assertEquals(1, calls.get());
+
+        //a new word is completed
+        assertEquals(4, complete(cache, "ls f f").getCompletionCandidates().size());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testCandidatesAreCopied() {
+        CompletionCache cache = new CompletionCache(10, 0, TimeUnit.MILLISECONDS);
+        complete(cache, "ls foob").getFormattedCompletionCandidatesTerminalString();
+        CompleteOperation co = complete(cache, "ls foob");
+        assertEquals(1, calls.get());
+        assertEquals("foobar", co.getCompletionCandidates().get(0).getCharacters());
+    }
+
+    @Test
+    public void testInvalidate() {
+        CompletionCache cache = new CompletionCache(10, 0, TimeUnit.MILLISECONDS);
+        complete(cache, "ls f");
+        cache.invalidate(completion);
+        assertEquals(0, cache.size());
+        complete(cache, "ls fo");
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        CompletionCache cache = new CompletionCache(2, 0, TimeUnit.MILLISECONDS);
+        complete(cache, "a f");
+        complete(cache, "b f");
+        complete(cache, "c f");
+        assertEquals(2, cache.size());
+        complete(cache, "a f");
+        assertEquals(4, calls.get());
+
+        cache = new CompletionCache(10, 10, TimeUnit.MILLISECONDS);
+        complete(cache, "ls f");
+        Thread.sleep(50);
+        complete(cache, "ls fo");
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void testNotNarrowable() {
+        CompletionCache cache = new CompletionCache(10, 0, TimeUnit.MILLISECONDS);
+        Completion all = co -> {
+            calls.incrementAndGet();
+            co.addCompletionCandidates(WORDS);
+            co.setIgnoreOffset(true);
+        };
+        CompleteOperation co = new CompleteOperationImpl("f", 1);
+        cache.complete(all, co);
+        co = new CompleteOperationImpl("fo", 2);
+        cache.complete(all, co);
+        assertEquals(2, calls.get());
+        assertEquals(4, co.getCompletionCandidates().size());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PrefixCompletionTest {
+
+    @Test
+    public void testFindMatches() {
+        PrefixCompletion completion = new PrefixCompletion("foobar", "bar", "foo", "fo", "foo", "g", "foobaz");
+        assertEquals(6, completion.size());
+        assertEquals(Arrays.asList("fo", "foo", "foobar", "foobaz"), completion.findMatches("f"));
+        assertEquals(Arrays.asList("foobar", "foobaz"), completion.findMatches("foob"));
+        assertEquals(Collections.singletonList("g"), completion.findMatches("g"));
+        assertEquals(Collections.emptyList(), completion.findMatches("x"));
+        assertEquals(Collections.emptyList(), completion.findMatches("a"));
+        assertEquals(6, completion.countMatches(""));
+        assertEquals(0, completion.countMatches("foobarz"));
+
+        assertEquals("fooba", completion.findCommonPrefix("foob"));
+        assertEquals("fo", completion.findCommonPrefix("f"));
+        assertEquals("x", completion.findCommonPrefix("x"));
+    }
+
+    @Test
+    public void testSurrogatePairs() {
+        //the emojis share their high surrogate
+        PrefixCompletion completion = new PrefixCompletion("a\uD83D\uDE00", "a\uD83D\uDE01");
+        assertEquals("a", completion.findCommonPrefix("a"));
+        assertEquals("a\uD83D\uDE00", completion.findCommonPrefix("a\uD83D\uDE00"));
+
+        CompleteOperation co = new CompleteOperationImpl("a", 1);
+        completion.complete(co);
+        assertEquals(2, co.getCompletionCandidates().size());
+        assertEquals("a", co.getCompletionCandidatesPrefix());
+    }
+
+    @Test
+    public void testManyWords() {
+        List<String> words = new ArrayList<>();
+        for(int i = 0; i < 40000; i++)
+            words.add("cmd" + i);
+        PrefixCompletion completion = new PrefixCompletion(words);
+        assertEquals(11, completion.countMatches("cmd1234"));
+        assertEquals(11111, completion.countMatches("cmd3"));
+        assertEquals("cmd3999", completion.findCommonPrefix("cmd3999"));
+    }
+
+    @Test
+    public void testComplete() {
+        PrefixCompletion completion = new PrefixCompletion("foobar", "foobaz", "bar");
+        CompleteOperation co = new CompleteOperationImpl("ls foob", 7);
+        completion.complete(co);
+        assertEquals(3, co.getOffset());
+        assertEquals(Arrays.asList("ar", "az"), co.getFormattedCompletionCandidates());
+        assertEquals("fooba", co.getCompletionCandidatesPrefix());
+        assertEquals("a", co.getFormattedCompletionPrefix());
+        //formatting the candidates changes them
+        co.getFormattedCompletionCandidatesTerminalString();
+        assertEquals("a", co.getCompletionCandidatesPrefix());
+
+        co = new CompleteOperationImpl("ls x", 4);
+        completion.complete(co);
+        assertEquals(0, co.getCompletionCandidates().size());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.editing.EditModeBuilder;
+import org.aesh.terminal.Key;
+import org.aesh.tty.TestConnection;
+import org.aesh.util.Parser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FuzzyHistorySearchTest {
+
+    private static List<String> search(FuzzyHistorySearch search, String term) {
+        List<String> result = new ArrayList<>();
+        for(FuzzyHistorySearch.Match match : search.search(Parser.toCodePoints(term)))
+            result.add(Parser.fromCodePoints(match.getEntry()));
+        return result;
+    }
+
+    @Test
+    public void testSubsequenceMatch() {
+        History history = new InMemoryHistory(20);
+        history.push(Parser.toCodePoints("git commit -m test"));
+        history.push(Parser.toCodePoints("ls -la"));
+        history.push(Parser.toCodePoints("gcc main.c"));
+        history.push(Parser.toCodePoints("git checkout master"));
+
+        FuzzyHistorySearch search = new FuzzyHistorySearch(history, 10);
+        assertEquals(2, search.search(Parser.toCodePoints("gco")).size());
+        //consecutive and word start matches score higher
+        assertEquals("git checkout master", search(search, "gchm").get(0));
+        assertEquals("gcc main.c", search(search, "gcm").get(0));
+        assertEquals("git commit -m test", search(search, "gcom").get(0));
+        assertTrue(search(search, "xyz").isEmpty());
+        //smart case
+        assertTrue(search(search, "LS").isEmpty());
+        assertEquals("ls -la", search(search, "la").get(0));
+    }
+
+    @Test
+    public void testRecencyAndTopK() {
+        History history = new InMemoryHistory(20);
+        for(int i = 0; i < 10; i++)
+            history.push(Parser.toCodePoints("echo " + i));
+        history.push(Parser.toCodePoints("echo 3"));
+
+        FuzzyHistorySearch search = new FuzzyHistorySearch(history, 3);
+        List<String> result = search(search, "echo");
+        //the best matches are equal, the most recent are listed and repeated entries only once
+        assertEquals(3, result.size());
+        assertEquals("echo 3", result.get(0));
+        assertEquals("echo 9", result.get(1));
+        assertEquals("echo 8", result.get(2));
+    }
+
+    @Test
+    public void testIncrementalSearchMatchesFullSearch() {
+        Random random = new Random(42);
+        History history = new InMemoryHistory(-1);
+        for(int i = 0; i < 2000; i++) {
+            StringBuilder entry = new StringBuilder();
+            int length = 1 + random.nextInt(20);
+            for(int j = 0; j < length; j++)
+                entry.append((char) ('a' + random.nextInt(6)));
+            history.push(Parser.toCodePoints(entry.toString()));
+        }
+
+        FuzzyHistorySearch incremental = new FuzzyHistorySearch(history, 5);
+        StringBuilder term = new StringBuilder();
+        for(int i = 0; i < 8; i++) {
+            term.append((char) ('a' + random.nextInt(6)));
+            FuzzyHistorySearch full = new FuzzyHistorySearch(history, 5);
+            List<FuzzyHistorySearch.Match> expected = full.search(Parser.toCodePoints(term.toString()));
+            List<FuzzyHistorySearch.Match> actual = incremental.search(Parser.toCodePoints(term.toString()));
+            assertEquals(expected.size(), actual.size());
+            for(int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getIndex(), actual.get(j).getIndex());
+                assertEquals(expected.get(j).getScore(), actual.get(j).getScore());
+            }
+        }
+    }
+
+    @Test
+    public void testFuzzySearchAction() {
+        TestConnection term = new TestConnection(EditModeBuilder.builder(EditMode.Mode.EMACS)
+                .addAction(Key.CTRL_T.getKeyValues(), "fuzzy-search-history").create());
+        term.read("git checkout master\n");
+        term.readline();
+        term.assertLine("git checkout master");
+        term.read("ls -la\n");
+        term.readline();
+        term.assertLine("ls -la");
+        term.read("git commit\n");
+        term.readline();
+        term.assertLine("git commit");
+
+        term.read(Key.CTRL_T);
+        term.read("gcm");
+        term.assertBuffer("(fuzzy-search) `gcm': git commit");
+        term.read(Key.DOWN);
+        term.assertBuffer("(fuzzy-search) `gcm': git checkout master");
+        term.read(Key.ENTER);
+        term.assertLine("git checkout master");
+    }
+}
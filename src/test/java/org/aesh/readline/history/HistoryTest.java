@@ -30,11 +30,18 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -114,6 +121,25 @@ public class HistoryTest {
         assertArrayEquals(Parser.toCodePoints("24"), history.getPreviousFetch());
     }
 
+    @Test
+    public void testEviction() {
+        History history = new InMemoryHistory(100);
+        for(int i = 0; i < 1000; i++)
+            history.push(Parser.toCodePoints(String.valueOf(i)));
+
+        assertEquals(100, history.size());
+        assertEquals(100, history.getAll().size());
+        for(int i = 0; i < 100; i++) {
+            assertArrayEquals(Parser.toCodePoints(String.valueOf(900 + i)), history.get(i));
+            assertArrayEquals(history.get(i), history.getAll().get(i));
+        }
+
+        history.clear();
+        assertEquals(0, history.size());
+        history.push(Parser.toCodePoints("foo"));
+        assertArrayEquals(Parser.toCodePoints("foo"), history.get(0));
+    }
+
     @Test
     public void testClear() {
         History history = new InMemoryHistory(10);
@@ -208,4 +234,480 @@ public class HistoryTest {
         assertArrayEquals(Parser.toCodePoints("foo3"), history.getPreviousFetch());
 
     }
+
+    @Test
+    public void testIndexedSearch() {
+        InMemoryHistory history = new InMemoryHistory(20);
+        history.enableSearchIndex(true);
+        history.push(Parser.toCodePoints("foo1"));
+        history.push(Parser.toCodePoints("bar"));
+        history.push(Parser.toCodePoints("foo2"));
+        history.push(Parser.toCodePoints("foo3"));
+
+        history.setSearchDirection(SearchDirection.REVERSE);
+        assertArrayEquals(Parser.toCodePoints("foo3"),history.search(Parser.toCodePoints("foo")) );
+        assertArrayEquals(Parser.toCodePoints("foo2"),history.search(Parser.toCodePoints("foo")) );
+        assertArrayEquals(Parser.toCodePoints("foo1"),history.search(Parser.toCodePoints("foo")) );
+        assertArrayEquals(Parser.toCodePoints("foo3"),history.search(Parser.toCodePoints("foo")) );
+
+        history.setSearchDirection(SearchDirection.FORWARD);
+        assertArrayEquals(Parser.toCodePoints("foo1"),history.search(Parser.toCodePoints("foo")) );
+        //extending the search term only filters the last candidates
+        assertArrayEquals(Parser.toCodePoints("foo2"),history.search(Parser.toCodePoints("foo2")) );
+        assertEquals(null, history.search(Parser.toCodePoints("foo22")));
+    }
+
+    @Test
+    public void testIndexedSearchMatchesLinearSearch() {
+        Random random = new Random(3);
+        InMemoryHistory indexed = new InMemoryHistory(50);
+        indexed.enableSearchIndex(true);
+        InMemoryHistory linear = new InMemoryHistory(50);
+        for(int i = 0; i < 2000; i++) {
+            if(random.nextInt(4) == 0) {
+                int[] entry = randomEntry(random, 1 + random.nextInt(10));
+                indexed.push(entry);
+                linear.push(entry);
+            }
+            else {
+                if(random.nextInt(10) == 0) {
+                    SearchDirection direction = random.nextBoolean() ? SearchDirection.REVERSE : SearchDirection.FORWARD;
+                    indexed.setSearchDirection(direction);
+                    linear.setSearchDirection(direction);
+                }
+                int[] search = randomEntry(random, 1 + random.nextInt(4));
+                assertArrayEquals(linear.search(search), indexed.search(search));
+            }
+        }
+    }
+
+    private static int[] randomEntry(Random random, int length) {
+        int[] entry = new int[length];
+        for(int i = 0; i < length; i++)
+            entry[i] = 'a' + random.nextInt(3);
+        return entry;
+    }
+
+    @Test
+    public void testFileHistoryAppend() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        FileHistory history = new FileHistory(historyFile, 5, null, false, true);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        history.push(Parser.toCodePoints("2"));
+        //entries are written when pushed
+        assertEquals(Arrays.asList("1", "2"), Files.readAllLines(historyFile.toPath()));
+
+        for(int i = 3; i <= 10; i++)
+            history.push(Parser.toCodePoints(String.valueOf(i)));
+        assertEquals(10, Files.readAllLines(historyFile.toPath()).size());
+        //the file is compacted when it has reached twice the max size
+        history.push(Parser.toCodePoints("11"));
+        assertEquals(Arrays.asList("7", "8", "9", "10", "11"), Files.readAllLines(historyFile.toPath()));
+        history.stop();
+
+        history = new FileHistory(historyFile, 5, null, false, true);
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("7"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("11"), history.get(4));
+        history.clear();
+        assertEquals(0, Files.readAllLines(historyFile.toPath()).size());
+        history.stop();
+    }
+
+    @Test
+    public void testEraseDuplicates() {
+        InMemoryHistory history = new InMemoryHistory(4);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        history.push(Parser.toCodePoints("1"));
+        assertArrayEquals(Parser.toCodePoints("1"), history.find(Parser.toCodePoints("1")));
+        assertEquals(null, history.find(Parser.toCodePoints("3")));
+
+        //the last of the existing duplicates is kept
+        history.enableSearchIndex(true);
+        history.enableEraseDuplicates(true);
+        assertEquals(2, history.size());
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(1));
+
+        history.push(Parser.toCodePoints("333"));
+        history.push(Parser.toCodePoints("2"));
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("333"), history.get(1));
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(2));
+        assertArrayEquals(Parser.toCodePoints("333"), history.search(Parser.toCodePoints("333")));
+
+        history.push(Parser.toCodePoints("4"));
+        history.push(Parser.toCodePoints("5"));
+        //1 is evicted and is no longer a duplicate
+        assertEquals(null, history.find(Parser.toCodePoints("1")));
+        assertArrayEquals(Parser.toCodePoints("2"), history.find(Parser.toCodePoints("2")));
+        history.push(Parser.toCodePoints("1"));
+        assertEquals(4, history.size());
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(3));
+        history.push(Parser.toCodePoints("2"));
+        assertEquals(4, history.size());
+        assertArrayEquals(Parser.toCodePoints("4"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(3));
+        assertArrayEquals(Parser.toCodePoints("2"), history.getPreviousFetch());
+    }
+
+    @Test
+    public void testGetAll() {
+        InMemoryHistory history = new InMemoryHistory(3);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        List<int[]> all = history.getAll();
+        all.add(Parser.toCodePoints("3"));
+        all.remove(0);
+        //the returned list is a copy
+        assertEquals(2, history.size());
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(0));
+    }
+
+    @Test
+    public void testEraseDuplicatesMatchesModel() {
+        Random random = new Random(7);
+        for(boolean compact : new boolean[]{false, true}) {
+            InMemoryHistory history = new InMemoryHistory(20, compact);
+            history.enableSearchIndex(true);
+            history.enableEraseDuplicates(true);
+            List<String> model = new ArrayList<>();
+            for(int i = 0; i < 3000; i++) {
+                int[] codePoints = randomEntry(random, 1 + random.nextInt(3));
+                String entry = Parser.fromCodePoints(codePoints);
+                history.push(codePoints);
+                if(model.isEmpty() || !model.get(model.size() - 1).equals(entry)) {
+                    model.remove(entry);
+                    model.add(entry);
+                    if(model.size() > 20)
+                        model.remove(0);
+                }
+                assertEquals(model.size(), history.size());
+                int index = random.nextInt(model.size());
+                assertEquals(model.get(index), Parser.fromCodePoints(history.get(index)));
+
+                //the search index is kept up to date
+                int[] search = randomEntry(random, 1 + random.nextInt(2));
+                String term = Parser.fromCodePoints(search);
+                history.setSearchDirection(SearchDirection.REVERSE);
+                history.getLastFetch();
+                int[] found = history.search(search);
+                String expected = null;
+                for(int j = model.size() - 1; j >= 0 && expected == null; j--)
+                    if(model.get(j).contains(term))
+                        expected = model.get(j);
+                assertEquals(expected, found == null ? null : Parser.fromCodePoints(found));
+                history.getLastFetch();
+                found = history.getPreviousFetch(search);
+                expected = null;
+                for(int j = model.size() - 1; j >= 0 && expected == null; j--)
+                    if(model.get(j).startsWith(term))
+                        expected = model.get(j);
+                assertEquals(expected, found == null ? null : Parser.fromCodePoints(found));
+            }
+        }
+    }
+
+    @Test
+    public void testPrefixFetch() {
+        for(boolean indexed : new boolean[]{false, true}) {
+            InMemoryHistory history = new InMemoryHistory(20);
+            history.enableSearchIndex(indexed);
+            history.push(Parser.toCodePoints("git status"));
+            history.push(Parser.toCodePoints("ls"));
+            history.push(Parser.toCodePoints("git log"));
+            history.push(Parser.toCodePoints("gitk"));
+
+            int[] prefix = Parser.toCodePoints("git ");
+            assertArrayEquals(Parser.toCodePoints("git log"), history.getPreviousFetch(prefix));
+            assertArrayEquals(Parser.toCodePoints("git status"), history.getPreviousFetch(prefix));
+            assertEquals(null, history.getPreviousFetch(prefix));
+            assertArrayEquals(Parser.toCodePoints("git log"), history.getNextFetch(prefix));
+            assertEquals(null, history.getNextFetch(prefix));
+            assertArrayEquals(Parser.toCodePoints("gitk"), history.getPreviousFetch(Parser.toCodePoints("git")));
+            assertArrayEquals(Parser.toCodePoints("git log"), history.getPreviousFetch(new int[0]));
+
+            assertArrayEquals(Parser.toCodePoints("git status"), history.getFirstFetch());
+            assertArrayEquals(Parser.toCodePoints("ls"), history.getNextFetch());
+            assertArrayEquals(new int[0], history.getLastFetch());
+            assertArrayEquals(Parser.toCodePoints("gitk"), history.getPreviousFetch());
+        }
+    }
+
+    @Test
+    public void testHistorySearchBackward() {
+        TestConnection term = new TestConnection(EditModeBuilder.builder(EditMode.Mode.EMACS)
+                .addAction(Key.UP.getKeyValues(), "history-search-backward")
+                .addAction(Key.DOWN.getKeyValues(), "history-search-forward").create());
+        term.read("git status\n");
+        term.readline();
+        term.assertLine("git status");
+        term.read("ls\n");
+        term.readline();
+        term.assertLine("ls");
+        term.read("git log\n");
+        term.readline();
+        term.assertLine("git log");
+
+        term.read("git ");
+        term.read(Key.UP);
+        term.assertBuffer("git log");
+        term.read(Key.UP);
+        term.assertBuffer("git status");
+        term.read(Key.UP);
+        term.assertBuffer("git status");
+        term.read(Key.DOWN);
+        term.assertBuffer("git log");
+        //the cursor is kept after the prefix
+        term.read("x");
+        term.assertBuffer("git xlog");
+        term.read(Key.ENTER);
+        term.assertLine("git xlog");
+    }
+
+    @Test
+    public void testCompactHistory() {
+        InMemoryHistory history = new InMemoryHistory(3, true);
+        int[][] entries = {
+                Parser.toCodePoints("ls -la"),
+                Parser.toCodePoints("echo æøå"),
+                Parser.toCodePoints("echo \u20ac \uD83D\uDE00"),
+                //an unpaired surrogate is kept as it is
+                new int[]{'a', 0xd800, 'b'}
+        };
+        for(int[] entry : entries)
+            history.push(entry);
+
+        assertEquals(3, history.size());
+        for(int i = 0; i < 3; i++)
+            assertArrayEquals(entries[i + 1], history.get(i));
+        assertArrayEquals(entries[3], history.getPreviousFetch());
+        assertArrayEquals(entries[2], history.search(Parser.toCodePoints("\u20ac")));
+        history.push(new int[]{'a', 0xd800, 'b'});
+        assertEquals(3, history.size());
+        history.clear();
+        assertEquals(0, history.size());
+    }
+
+    @Test
+    public void testMappedFileHistory() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        Files.write(historyFile.toPath(), Arrays.asList("1", "2", "3", "4", "5", "6", "7", "æøå"));
+
+        MappedFileHistory history = new MappedFileHistory(historyFile, 5, false, StandardCharsets.UTF_8);
+        //only the last max size lines of the file are used
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("4"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("æøå"), history.get(4));
+        assertArrayEquals(Parser.toCodePoints("6"), history.search(Parser.toCodePoints("6")));
+
+        //mapped lines are evicted first
+        history.push(Parser.toCodePoints("8"));
+        history.push(Parser.toCodePoints("9"));
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("6"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("9"), history.get(4));
+        assertArrayEquals(Parser.toCodePoints("9"), history.getPreviousFetch());
+        assertEquals(10, Files.readAllLines(historyFile.toPath()).size());
+        //the file is compacted when stopped
+        history.stop();
+        assertEquals(Arrays.asList("6", "7", "æøå", "8", "9"), Files.readAllLines(historyFile.toPath()));
+
+        history = new MappedFileHistory(historyFile, 5, false, StandardCharsets.UTF_8);
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("8"), history.get(3));
+        history.clear();
+        assertEquals(0, history.size());
+        assertEquals(0, Files.readAllLines(historyFile.toPath()).size());
+        history.stop();
+
+        File missing = new File(historyFile.getAbsolutePath() + ".missing");
+        missing.deleteOnExit();
+        history = new MappedFileHistory(missing, 5, false, StandardCharsets.UTF_8);
+        assertEquals(0, history.size());
+        history.push(Parser.toCodePoints("1"));
+        history.stop();
+        assertEquals(Arrays.asList("1"), Files.readAllLines(missing.toPath()));
+
+        //mapped lines can be removed as duplicates
+        Files.write(historyFile.toPath(), Arrays.asList("1", "2", "3", "2"));
+        history = new MappedFileHistory(historyFile, 5, false, StandardCharsets.UTF_8);
+        history.enableSearchIndex(true);
+        history.enableEraseDuplicates(true);
+        history.push(Parser.toCodePoints("1"));
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("3"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(1));
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(2));
+        history.push(Parser.toCodePoints("3"));
+        assertArrayEquals(Parser.toCodePoints("2"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("3"), history.get(2));
+        history.setSearchDirection(SearchDirection.FORWARD);
+        assertArrayEquals(Parser.toCodePoints("2"), history.search(Parser.toCodePoints("2")));
+        assertArrayEquals(Parser.toCodePoints("1"), history.getNextFetch(Parser.toCodePoints("1")));
+        history.stop();
+    }
+
+    @Test
+    public void testMappedFileHistorySearch() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        List<String> lines = Arrays.asList("ls æøå", "cd 😀x", "ls foo", "cd 😀x", "git æø", "ls foo\r");
+        for(boolean index : new boolean[] {false, true}) {
+            Files.write(historyFile.toPath(), lines, StandardCharsets.UTF_8);
+            MappedFileHistory history = new MappedFileHistory(historyFile, 10, false, StandardCharsets.UTF_8);
+            history.enableSearchIndex(index);
+            history.enableEraseDuplicates(true);
+            assertEquals(4, history.size());
+            assertArrayEquals(Parser.toCodePoints("ls æøå"), history.get(0));
+            assertArrayEquals(Parser.toCodePoints("cd 😀x"), history.get(1));
+            assertArrayEquals(Parser.toCodePoints("ls foo"), history.get(3));
+            history.push(Parser.toCodePoints("cd æøå"));
+
+            assertArrayEquals(Parser.toCodePoints("cd æøå"), history.search(Parser.toCodePoints("æøå")));
+            assertArrayEquals(Parser.toCodePoints("ls æøå"), history.search(Parser.toCodePoints("æøå")));
+            assertArrayEquals(Parser.toCodePoints("cd 😀x"), history.search(Parser.toCodePoints("😀x")));
+            assertEquals(null, history.search(Parser.toCodePoints("ls foo\r")));
+            history.setSearchDirection(SearchDirection.FORWARD);
+            history.getFirstFetch();
+            assertArrayEquals(Parser.toCodePoints("git æø"), history.search(Parser.toCodePoints("t æ")));
+            assertArrayEquals(Parser.toCodePoints("cd æøå"), history.search(Parser.toCodePoints("d æ")));
+
+            history.getLastFetch();
+            assertArrayEquals(Parser.toCodePoints("cd æøå"), history.getPreviousFetch(Parser.toCodePoints("cd")));
+            assertArrayEquals(Parser.toCodePoints("cd 😀x"), history.getPreviousFetch(Parser.toCodePoints("cd")));
+            assertEquals(null, history.getPreviousFetch(Parser.toCodePoints("cd")));
+            history.getFirstFetch();
+            assertArrayEquals(Parser.toCodePoints("ls foo"), history.getNextFetch(Parser.toCodePoints("ls")));
+            assertArrayEquals(Parser.toCodePoints("ls foo"), history.find(Parser.toCodePoints("ls foo")));
+            history.stop();
+        }
+
+        Files.write(historyFile.toPath(), Arrays.asList("ls æøå", "cd", "ls æøå"), StandardCharsets.ISO_8859_1);
+        MappedFileHistory latin = new MappedFileHistory(historyFile, 10, false, StandardCharsets.ISO_8859_1);
+        latin.enableSearchIndex(true);
+        latin.enableEraseDuplicates(true);
+        assertEquals(2, latin.size());
+        assertArrayEquals(Parser.toCodePoints("ls æøå"), latin.search(Parser.toCodePoints("øå")));
+        latin.enableSearchIndex(false);
+        latin.getLastFetch();
+        assertArrayEquals(Parser.toCodePoints("ls æøå"), latin.search(Parser.toCodePoints("øå")));
+        latin.stop();
+
+        //a line break must be a single '\n' byte to find the lines
+        try {
+            new MappedFileHistory(historyFile, 10, false, StandardCharsets.UTF_16);
+            fail("UTF-16 is not supported");
+        }
+        catch(IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("UTF-16"));
+        }
+    }
+
+    @Test
+    public void testSharedFileHistory() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        FileHistory first = new FileHistory(historyFile, 4, null, false, FileHistory.Mode.SHARED);
+        FileHistory second = new FileHistory(historyFile, 4, null, false, FileHistory.Mode.SHARED);
+
+        first.push(Parser.toCodePoints("1"));
+        //entries from the other history are added before our own
+        second.push(Parser.toCodePoints("2"));
+        assertEquals(2, second.size());
+        assertArrayEquals(Parser.toCodePoints("1"), second.get(0));
+        assertEquals(1, first.size());
+        first.refresh();
+        assertEquals(2, first.size());
+        assertArrayEquals(Parser.toCodePoints("2"), first.get(1));
+
+        //the file is compacted by the first history, the second reads it again
+        for(int i = 3; i <= 9; i++)
+            first.push(Parser.toCodePoints(String.valueOf(i)));
+        List<String> lines = Files.readAllLines(historyFile.toPath());
+        assertTrue(SharedHistoryFile.isHeader(lines.get(0)));
+        assertEquals(Arrays.asList("6", "7", "8", "9"), lines.subList(1, lines.size()));
+        second.refresh();
+        assertEquals(4, second.size());
+        assertArrayEquals(Parser.toCodePoints("6"), second.get(0));
+        assertArrayEquals(Parser.toCodePoints("9"), second.get(3));
+        second.push(Parser.toCodePoints("10"));
+        first.refresh();
+        assertArrayEquals(Parser.toCodePoints("10"), first.get(3));
+
+        first.stop();
+        second.stop();
+        FileHistory third = new FileHistory(historyFile, 4, null, false, FileHistory.Mode.SHARED);
+        assertArrayEquals(Parser.toCodePoints("10"), third.get(3));
+        third.stop();
+    }
+
+    @Test
+    public void testSharedFileHistoryRewrite() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        FileHistory first = new FileHistory(historyFile, 2, null, false, FileHistory.Mode.SHARED);
+        FileHistory second = new FileHistory(historyFile, 2, null, false, FileHistory.Mode.SHARED);
+        first.push(Parser.toCodePoints("x"));
+        first.push(Parser.toCodePoints("y"));
+        second.refresh();
+        assertEquals(2, second.size());
+
+        //after the compaction "y" ends at the same position as before
+        first.push(Parser.toCodePoints("w"));
+        first.push(Parser.toCodePoints("z"));
+        first.push(Parser.toCodePoints("y"));
+        assertEquals(Arrays.asList("z", "y"), entries(historyFile));
+        second.refresh();
+        assertEquals(2, second.size());
+        assertArrayEquals(Parser.toCodePoints("z"), second.get(0));
+        assertArrayEquals(Parser.toCodePoints("y"), second.get(1));
+
+        //clearing one history keeps the entries of the other
+        second.clear();
+        assertEquals(0, second.size());
+        assertEquals(Arrays.asList("z", "y"), entries(historyFile));
+        first.refresh();
+        assertEquals(2, first.size());
+        second.push(Parser.toCodePoints("v"));
+        assertEquals(1, second.size());
+        first.refresh();
+        assertArrayEquals(Parser.toCodePoints("v"), first.get(1));
+        first.stop();
+        second.stop();
+
+        //the header is not read as an entry by the other modes
+        assertEquals(Arrays.asList("z", "y", "v"), entries(historyFile));
+        FileHistory history = new FileHistory(historyFile, 5, null, false);
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("z"), history.get(0));
+        MappedFileHistory mapped = new MappedFileHistory(historyFile, 5, false, StandardCharsets.UTF_8);
+        assertEquals(3, mapped.size());
+        assertArrayEquals(Parser.toCodePoints("z"), mapped.get(0));
+        mapped.stop();
+    }
+
+    private static List<String> entries(File historyFile) throws IOException {
+        List<String> lines = Files.readAllLines(historyFile.toPath());
+        return lines.subList(1, lines.size());
+    }
+
+    @Test
+    public void testSharedFileHistoryFailure() throws IOException {
+        //a directory can not be opened as the history file
+        File directory = Files.createTempDirectory("aesh-history").toFile();
+        directory.deleteOnExit();
+        FileHistory history = new FileHistory(directory, 4, null, false, FileHistory.Mode.SHARED);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        assertEquals(2, history.size());
+        assertArrayEquals(Parser.toCodePoints("2"), history.getPreviousFetch());
+        history.stop();
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.impl;
+
+import org.aesh.terminal.Attributes;
+import org.aesh.tty.Signal;
+import org.aesh.tty.Size;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class AbstractPosixTerminalTest {
+
+    @Test
+    public void testSizeIsCachedUntilResize() throws IOException {
+        TestPty pty = new TestPty();
+        TestPosixTerminal terminal = new TestPosixTerminal(pty);
+        terminal.setCacheSize(true);
+
+        assertEquals(new Size(80, 20), terminal.getSize());
+        assertEquals(new Size(80, 20), terminal.getSize());
+        assertEquals(1, pty.sizeCalls);
+
+        pty.size = new Size(120, 40);
+        terminal.raise(Signal.WINCH);
+        assertEquals(new Size(120, 40), terminal.getSize());
+        assertEquals(new Size(120, 40), terminal.getSize());
+        assertEquals(2, pty.sizeCalls);
+    }
+
+    @Test
+    public void testSizeIsNotCachedByDefault() throws IOException {
+        TestPty pty = new TestPty();
+        TestPosixTerminal terminal = new TestPosixTerminal(pty);
+
+        terminal.getSize();
+        terminal.getSize();
+        assertEquals(2, pty.sizeCalls);
+    }
+
+    private static class TestPosixTerminal extends AbstractPosixTerminal {
+
+        TestPosixTerminal(Pty pty) throws IOException {
+            super("test", "ansi", pty);
+        }
+
+        @Override
+        public PrintWriter writer() {
+            return new PrintWriter(output());
+        }
+
+        @Override
+        public InputStream input() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public OutputStream output() {
+            return new ByteArrayOutputStream();
+        }
+    }
+
+    private static class TestPty implements Pty {
+
+        private Size size = new Size(80, 20);
+        private int sizeCalls;
+
+        @Override
+        public InputStream getMasterInput() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream getMasterOutput() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getSlaveInput() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream getSlaveOutput() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Attributes getAttr() {
+            return new Attributes();
+        }
+
+        @Override
+        public void setAttr(Attributes attr) {
+        }
+
+        @Override
+        public Size getSize() {
+            sizeCalls++;
+            return size;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.aesh.tty.Size;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.EnumSet;
 
 import static org.junit.Assert.assertEquals;
@@ -223,4 +224,51 @@ public class ExecPtyTest {
         assertEquals(4, attributes.getControlChar(ControlChar.VMIN));
         assertEquals(0, attributes.getControlChar(ControlChar.VTIME));
     }
+
+    @Test
+    public void testSetAttrCommands() throws IOException {
+        Attributes current = ExecPty.doGetAttr(linuxSttySample);
+        Attributes raw = new Attributes(current);
+        assertEquals(0, ExecPty.doGetSetAttrCommands(current, raw).size());
+
+        raw.setLocalFlags(EnumSet.of(LocalFlag.ICANON, LocalFlag.ECHO), false);
+        raw.setInputFlag(InputFlag.ICRNL, false);
+        raw.setControlChar(ControlChar.VTIME, 1);
+        assertEquals(Arrays.asList("-icrnl", "-echo", "-icanon", "time", "1"),
+                ExecPty.doGetSetAttrCommands(current, raw));
+    }
+
+    @Test
+    public void testAttributesAreCached() throws IOException {
+        CountingExecPty pty = new CountingExecPty(linuxSttySample);
+        Attributes attributes = pty.getAttr();
+        assertEquals(attributes.getLocalFlags(), pty.getAttr().getLocalFlags());
+        assertEquals(1, pty.configCalls);
+
+        //changing the returned copy do not change the cache
+        attributes.setLocalFlag(LocalFlag.ECHO, false);
+        assertEquals(true, pty.getAttr().getLocalFlag(LocalFlag.ECHO));
+
+        //reading the size also refresh the attributes
+        pty.config = linuxSttySample.replace(" echo ", " -echo ");
+        assertEquals(new Size(244, 85), pty.getSize());
+        assertEquals(false, pty.getAttr().getLocalFlag(LocalFlag.ECHO));
+        assertEquals(2, pty.configCalls);
+    }
+
+    private static class CountingExecPty extends ExecPty {
+        private String config;
+        private int configCalls;
+
+        CountingExecPty(String config) {
+            super("/dev/test");
+            this.config = config;
+        }
+
+        @Override
+        protected String doGetConfig() {
+            configCalls++;
+            return config;
+        }
+    }
 }
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -54,6 +55,15 @@ public class InfoCmpTest {
         assertTrue(strings.containsKey(Capability.byName("kf29")));
     }
 
+    @Test
+    public void testDefaultStringCapability() {
+        assertEquals("\\E[%p1%d@", InfoCmp.getDefaultStringCapability("xterm-256color", Capability.parm_ich));
+        assertEquals("\\E[%p1%dP", InfoCmp.getDefaultStringCapability("vt100", Capability.parm_dch));
+        assertNull(InfoCmp.getDefaultStringCapability("windows", Capability.parm_ich));
+        assertNull(InfoCmp.getDefaultStringCapability("dumb", Capability.parm_ich));
+        assertNull(InfoCmp.getDefaultStringCapability(null, Capability.parm_ich));
+    }
+
     @Test
     public void testWindows() {
         Set<Capability> bools = new HashSet<>();
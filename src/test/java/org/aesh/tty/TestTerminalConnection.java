@@ -137,4 +137,24 @@ public class TestTerminalConnection {
         assertEquals(new String(out.toByteArray()), "GAH"+Config.getLineSeparator()+"FOOBAR"+ Config.getLineSeparator());
     }
 
+    @Test
+    public void testBufferedOutput() throws IOException {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        TerminalConnection connection = new TerminalConnection(pipedInputStream, out);
+        connection.startBuffering();
+        connection.write("foo");
+        connection.write("bar");
+        assertEquals(0, out.size());
+        connection.flush();
+        assertEquals("foobar", new String(out.toByteArray()));
+
+        //output is written directly when we're not buffering
+        connection.write("!");
+        assertEquals("foobar!", new String(out.toByteArray()));
+        connection.close();
+    }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class IntGapBufferTest {
+
+    @Test
+    public void insertAndDelete() {
+        IntGapBuffer buffer = new IntGapBuffer(2);
+        buffer.insert(0, new int[]{1, 2, 3});
+        buffer.insert(0, 0);
+        buffer.insert(4, new int[]{4, 5});
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, buffer.toArray());
+        buffer.delete(1, 3);
+        assertArrayEquals(new int[]{0, 3, 4, 5}, buffer.toArray());
+        assertArrayEquals(new int[]{3, 4}, buffer.toArray(1, 3));
+        buffer.set(3, 9);
+        assertEquals(9, buffer.get(3));
+        assertEquals(4, buffer.size());
+
+        IntGapBuffer copy = new IntGapBuffer(buffer);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertArrayEquals(new int[]{0, 3, 4, 9}, copy.toArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        IntGapBuffer buffer = new IntGapBuffer();
+        buffer.insert(0, 1);
+        buffer.get(1);
+    }
+
+    @Test
+    public void randomEdits() {
+        Random random = new Random(7);
+        IntGapBuffer buffer = new IntGapBuffer(4);
+        List<Integer> expected = new ArrayList<>();
+        for(int i = 0; i < 10000; i++) {
+            int index = random.nextInt(expected.size() + 1);
+            if(random.nextInt(3) > 0) {
+                int[] data = new int[random.nextInt(5) + 1];
+                for(int j = 0; j < data.length; j++) {
+                    data[j] = random.nextInt(1000);
+                    expected.add(index + j, data[j]);
+                }
+                buffer.insert(index, data);
+            }
+            else {
+                int to = Math.min(expected.size(), index + random.nextInt(4));
+                expected.subList(index, to).clear();
+                buffer.delete(index, to);
+            }
+            assertEquals(expected.size(), buffer.size());
+        }
+        for(int i = 0; i < expected.size(); i++)
+            assertEquals((int) expected.get(i), buffer.get(i));
+    }
+}